@@ -1,21 +1,24 @@
 package com.woodenfurniture.base;
 
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.importjob.ImportJobResponse;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -87,6 +90,19 @@ public abstract class BaseController<T extends BaseEntity, ID, Req extends BaseR
                 .build());
     }
 
+    @Override
+    public ResponseEntity<ApiResponse<CursorPage<Res>>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Sort sort) {
+        CursorPage<Res> responses = service.getAll(cursor, size, sort);
+        return ResponseEntity.ok(ApiResponse.<CursorPage<Res>>builder()
+                .code(HttpStatus.OK.value())
+                .message(entityName + "s retrieved successfully")
+                .result(responses)
+                .build());
+    }
+
     @Override
     public ResponseEntity<ApiResponse<Void>> deleteById(@PathVariable ID id) {
         service.deleteById(id);
@@ -118,28 +134,131 @@ public abstract class BaseController<T extends BaseEntity, ID, Req extends BaseR
     }
 
     @Override
-    public ResponseEntity<Resource> importData(@RequestParam("file") MultipartFile file) {
-        ByteArrayOutputStream outputStream = service.importData(file);
-        ByteArrayResource resource = new ByteArrayResource(outputStream.toByteArray());
+    public ResponseEntity<ApiResponse<SearchSlice<Res>>> searchSlice(
+            @RequestParam(required = false) BaseSearchRequest searchRequest,
+            Pageable pageable,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        SearchSlice<Res> responses = service.searchSlice(searchRequest, pageable, withTotal);
+        return ResponseEntity.ok(ApiResponse.<SearchSlice<Res>>builder()
+                .code(HttpStatus.OK.value())
+                .message(entityName + "s retrieved successfully")
+                .result(responses)
+                .build());
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=import_result.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .contentLength(outputStream.size())
-                .body(resource);
+    @Override
+    public ResponseEntity<ApiResponse<CursorPage<Res>>> search(
+            @RequestParam(required = false) BaseSearchRequest searchRequest,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Sort sort) {
+        CursorPage<Res> responses = service.search(searchRequest, cursor, size, sort);
+        return ResponseEntity.ok(ApiResponse.<CursorPage<Res>>builder()
+                .code(HttpStatus.OK.value())
+                .message(entityName + "s retrieved successfully")
+                .result(responses)
+                .build());
     }
 
     @Override
-    public ResponseEntity<Resource> exportData(
+    public ResponseEntity<StreamingResponseBody> importData(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) ImportMode mode,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // Results come back in the format of the upload unless another one is asked for
+        FileFormat resultFormat = negotiateFormat(format, accept, FileFormat.fromFileName(file.getOriginalFilename()));
+
+        // Imported before the response is committed so that a rejected upload, the row limit or a configuration
+        // error is reported as an error response; the result is spooled to disk and streamed afterwards
+        ImportMode importMode = mode != null ? mode : ImportMode.INSERT;
+        InputStream result = service.importData(file, importMode, resultFormat);
+        StreamingResponseBody body = outputStream -> {
+            try (result) {
+                result.transferTo(outputStream);
+            }
+        };
+
+        return fileResponse("import_result", resultFormat, body);
+    }
+
+    @Override
+    public ResponseEntity<ApiResponse<ImportJobResponse>> importDataAsync(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) ImportMode mode,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        FileFormat resultFormat = negotiateFormat(format, accept, FileFormat.fromFileName(file.getOriginalFilename()));
+        ImportJobResponse response = service.importDataAsync(file, mode != null ? mode : ImportMode.INSERT, resultFormat);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.<ImportJobResponse>builder()
+                        .code(HttpStatus.ACCEPTED.value())
+                        .message(entityName + " import queued")
+                        .result(response)
+                        .build());
+    }
+
+    @Override
+    public ResponseEntity<ApiResponse<ImportJobResponse>> getImportJob(@PathVariable String jobId) {
+        ImportJobResponse response = service.getImportJob(jobId);
+        return ResponseEntity.ok(ApiResponse.<ImportJobResponse>builder()
+                .code(HttpStatus.OK.value())
+                .message(entityName + " import job retrieved successfully")
+                .result(response)
+                .build());
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> downloadImportResult(@PathVariable String jobId) {
+        FileFormat resultFormat = service.getImportJob(jobId).getResultFormat();
+        // Opened before streaming starts so that an unfinished job is reported as an error response
+        InputStream result = service.openImportResult(jobId);
+        StreamingResponseBody body = outputStream -> {
+            try (result) {
+                result.transferTo(outputStream);
+            }
+        };
+
+        return fileResponse("import_result", resultFormat != null ? resultFormat : FileFormat.XLSX, body);
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportData(
             @RequestParam(required = false) BaseSearchRequest searchTerm,
-            Pageable pageable) {
-        ByteArrayOutputStream outputStream = service.exportData(searchTerm, pageable);
-        ByteArrayResource resource = new ByteArrayResource(outputStream.toByteArray());
+            Pageable pageable,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        FileFormat exportFormat = negotiateFormat(format, accept, FileFormat.XLSX);
+        // Checked before streaming starts so that invalid criteria or configuration are reported as an error response
+        service.checkExport(searchTerm, pageable);
+        StreamingResponseBody body = outputStream -> service.exportData(searchTerm, pageable, exportFormat, outputStream);
+
+        return fileResponse("export", exportFormat, body);
+    }
+
+    /**
+     * Pick the file format of a response: the {@code format} parameter first, then the {@code Accept} header
+     *
+     * @param format        Format parameter such as {@code xlsx}, {@code csv} or {@code csv.gz}
+     * @param accept        Accept header
+     * @param defaultFormat Format used when neither names a supported one, XLSX if null
+     * @return File format
+     */
+    protected FileFormat negotiateFormat(String format, String accept, FileFormat defaultFormat) {
+        FileFormat requested = FileFormat.fromName(format);
+        if (requested == null) {
+            requested = FileFormat.fromAccept(accept);
+        }
+        if (requested != null) {
+            return requested;
+        }
+        return defaultFormat != null ? defaultFormat : FileFormat.XLSX;
+    }
 
+    private ResponseEntity<StreamingResponseBody> fileResponse(String fileName, FileFormat format, StreamingResponseBody body) {
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=export.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .contentLength(outputStream.size())
-                .body(resource);
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName + "." + format.getExtension())
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(body);
     }
-} 
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -32,8 +33,10 @@ import java.util.UUID;
 @AllArgsConstructor
 public abstract class BaseEntity implements Serializable {
 
+    // Sequence (table-backed on MySQL) ids are pre-allocated in pools, which lets Hibernate batch inserts.
+    // IdSequenceSeeder moves the sequences past existing ids on startup.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @Column(name = "uuid", unique = true, nullable = false)
@@ -73,5 +76,11 @@ public abstract class BaseEntity implements Serializable {
         if (this.isDeleted == null) {
             this.isDeleted = false;
         }
+        SearchText.normalizeShadows(this);
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        SearchText.normalizeShadows(this);
     }
 }
@@ -68,6 +68,7 @@ public class BaseSearchRequest {
         LESS_THAN_OR_EQUALS,
         LIKE,
         NOT_LIKE,
+        STARTS_WITH,
         IN,
         NOT_IN,
         IS_NULL,
@@ -1,10 +1,17 @@
 package com.woodenfurniture.base;
 
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.base.excel.SheetWriter;
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.importjob.ImportJobResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -65,6 +72,17 @@ public interface BaseService<T extends BaseEntity, ID, R extends BaseRequest<T>,
      */
     Page<S> getAll(Pageable pageable);
 
+    /**
+     * Get entities by keyset: rows after the cursor in sort order, with {@code id} as tie-breaker.
+     * The cost of a page does not depend on how deep it is.
+     *
+     * @param cursor Token of the page, from {@link CursorPage#getNextCursor()}; null for the first page
+     * @param size   Page size
+     * @param sort   Sort, must be the same for every page
+     * @return Page of entity responses
+     */
+    CursorPage<S> getAll(String cursor, int size, Sort sort);
+
     /**
      * Delete entity by ID (soft delete)
      *
@@ -88,6 +106,28 @@ public interface BaseService<T extends BaseEntity, ID, R extends BaseRequest<T>,
      */
     Page<S> search(BaseSearchRequest searchRequest, Pageable pageable);
 
+    /**
+     * Search entities one slice at a time, without a count query
+     *
+     * @param searchRequest Search request
+     * @param pageable      Pageable object for pagination and sorting
+     * @param withTotal     Whether to include the approximate total from the count cache
+     * @return Slice of responses
+     */
+    SearchSlice<S> searchSlice(BaseSearchRequest searchRequest, Pageable pageable, boolean withTotal);
+
+    /**
+     * Search entities by keyset: matching rows after the cursor in sort order, with {@code id} as tie-breaker.
+     * The cost of a page does not depend on how deep it is.
+     *
+     * @param searchRequest Search request
+     * @param cursor        Token of the page, from {@link CursorPage#getNextCursor()}; null for the first page
+     * @param size          Page size
+     * @param sort          Sort, must be the same for every page
+     * @return Page of responses
+     */
+    CursorPage<S> search(BaseSearchRequest searchRequest, String cursor, int size, Sort sort);
+
     /**
      * Import data from Excel file
      *
@@ -96,6 +136,53 @@ public interface BaseService<T extends BaseEntity, ID, R extends BaseRequest<T>,
      */
     ByteArrayOutputStream importData(MultipartFile file);
 
+    /**
+     * Import data from an Excel or CSV file, writing the validation results straight to an output stream
+     *
+     * @param file         Excel or CSV file
+     * @param mode         Insert every row, or upsert rows matched on code or uuid
+     * @param resultFormat File format of the validation results
+     * @param outputStream Target stream for the file with validation results
+     */
+    void importData(MultipartFile file, ImportMode mode, FileFormat resultFormat, OutputStream outputStream);
+
+    /**
+     * Import data from an Excel or CSV file into a spooled result file. The import has finished when this
+     * returns, so a rejected upload fails here rather than halfway through a download.
+     *
+     * @param file         Excel or CSV file
+     * @param mode         Insert every row, or upsert rows matched on code or uuid
+     * @param resultFormat File format of the validation results
+     * @return Stream over the result file, deleted once the stream is closed by the caller
+     */
+    InputStream importData(MultipartFile file, ImportMode mode, FileFormat resultFormat);
+
+    /**
+     * Queue an import of an Excel or CSV file and return immediately
+     *
+     * @param file         Excel or CSV file
+     * @param mode         Insert every row, or upsert rows matched on code or uuid
+     * @param resultFormat File format of the validation results
+     * @return Created import job
+     */
+    ImportJobResponse importDataAsync(MultipartFile file, ImportMode mode, FileFormat resultFormat);
+
+    /**
+     * Get the state and progress of an import job
+     *
+     * @param jobId Import job id
+     * @return Import job
+     */
+    ImportJobResponse getImportJob(String jobId);
+
+    /**
+     * Open the file with validation results of a completed import job
+     *
+     * @param jobId Import job id
+     * @return Stream over the result file, to be closed by the caller
+     */
+    InputStream openImportResult(String jobId);
+
     /**
      * Export data to Excel file
      *
@@ -104,4 +191,46 @@ public interface BaseService<T extends BaseEntity, ID, R extends BaseRequest<T>,
      * @return Excel file
      */
     ByteArrayOutputStream exportData(BaseSearchRequest searchRequest, Pageable pageable);
+
+    /**
+     * Export data in the given file format, writing straight to an output stream
+     *
+     * @param searchRequest Search request
+     * @param pageable      Pageable object
+     * @param format        File format
+     * @param outputStream  Target stream for the file
+     */
+    void exportData(BaseSearchRequest searchRequest, Pageable pageable, FileFormat format, OutputStream outputStream);
+
+    /**
+     * Check an export before anything is written: the export configuration, the search criteria and the sort
+     *
+     * @param searchRequest Search request
+     * @param pageable      Pageable object
+     */
+    void checkExport(BaseSearchRequest searchRequest, Pageable pageable);
+
+    /**
+     * Export data into a sheet writer, header included. The writer is left unfinished so that the caller
+     * can place the sheet, for example in a workbook with other sheets.
+     *
+     * @param searchRequest Search request
+     * @param pageable      Pageable object
+     * @param sheetWriter   Target sheet writer, configured with {@link #getExportConfig()}
+     */
+    void exportData(BaseSearchRequest searchRequest, Pageable pageable, SheetWriter sheetWriter);
+
+    /**
+     * Get the Excel configuration of exports
+     *
+     * @return Export configuration
+     */
+    SimpleExcelConfig getExportConfig();
+
+    /**
+     * Get the class of the managed entity
+     *
+     * @return Entity class
+     */
+    Class<T> getEntityClass();
 } 
\ No newline at end of file
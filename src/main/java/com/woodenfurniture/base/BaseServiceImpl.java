@@ -1,45 +1,112 @@
 package com.woodenfurniture.base;
 
+import com.woodenfurniture.base.excel.ColumnarChunk;
+import com.woodenfurniture.base.excel.EntityAccessor;
+import com.woodenfurniture.base.excel.EntityAccessorRegistry;
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.base.excel.SheetWriter;
+import com.woodenfurniture.base.excel.ValidationPlan;
 import com.woodenfurniture.config.excel.SimpleExcelConfig;
 import com.woodenfurniture.config.excel.SimpleExcelConfigReader;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
 import com.woodenfurniture.exception.ResourceNotFoundException;
+import com.woodenfurniture.importjob.ImportJobResponse;
+import com.woodenfurniture.importjob.ImportJobService;
+import com.woodenfurniture.importjob.ImportProgress;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
-import static org.springframework.security.util.FieldUtils.getFieldValue;
+import java.util.stream.Stream;
 
 @Slf4j
 @RequiredArgsConstructor
 public abstract class BaseServiceImpl<T extends BaseEntity, ID, Req extends BaseRequest<T>, Res extends BaseResponse<T>>
         implements BaseService<T, ID, Req, Res> {
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     protected final BaseRepository<T, ID> repository;
     protected final Class<T> entityClass;
     protected final ExcelService excelService;
     protected final BaseMapper<T, Res> mapper;
     protected final SimpleExcelConfigReader excelConfigReader;
 
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    @Autowired
+    protected ImportJobService importJobService;
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @Autowired
+    protected ParallelExporter parallelExporter;
+
+    @Autowired
+    protected ExportSessions exportSessions;
+
+    @Autowired
+    protected AuditorAware<String> auditorAware;
+
+    @Autowired
+    protected SearchCountCache searchCountCache;
+
+    @Autowired
+    protected SearchIndex searchIndex;
+
+    @Autowired
+    protected SearchTextBackfill searchTextBackfill;
+
+    @Autowired
+    protected ImportLimits importLimits;
+
+    @Autowired
+    protected ImportPipelineExecutor importPipelineExecutor;
+
+    @PostConstruct
+    void registerSearchIndex() {
+        searchIndex.register(entityClass, getIndexedSearchProperties());
+    }
+
     @Override
     @Transactional
     public Res create(Req request) {
         T entity = mapper.toEntity(request);
         entity = repository.save(entity);
+        searchIndex.put(entityClass, entity);
         return mapper.toDto(entity);
     }
 
@@ -51,6 +118,7 @@ public abstract class BaseServiceImpl<T extends BaseEntity, ID, Req extends Base
 
         mapper.updateEntityFromDto(request, entity);
         entity = repository.save(entity);
+        searchIndex.put(entityClass, entity);
         return mapper.toDto(entity);
     }
 
@@ -80,6 +148,12 @@ public abstract class BaseServiceImpl<T extends BaseEntity, ID, Req extends Base
         return entities.map(mapper::toDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Res> getAll(String cursor, int size, Sort sort) {
+        return seek((root, query, criteriaBuilder) -> criteriaBuilder.isFalse(root.get("isDeleted")), cursor, size, sort);
+    }
+
     @Override
     @Transactional
     public void deleteById(ID id) {
@@ -98,38 +172,193 @@ public abstract class BaseServiceImpl<T extends BaseEntity, ID, Req extends Base
         repository.save(entity);
     }
 
+    /**
+     * Run through the compiled {@link SearchPlan} of the request shape, the count query only when the page
+     * does not tell the total by itself
+     */
     @Override
+    @Transactional(readOnly = true)
     public Page<Res> search(BaseSearchRequest searchRequest, Pageable pageable) {
-        Specification<T> spec = createSearchSpecification(searchRequest);
-        Page<T> entities = repository.findAll(spec, pageable);
-        return entities.map(mapper::toDto);
+        Pageable page = pageable != null ? pageable : Pageable.unpaged();
+        List<Object> candidates = searchIndex.candidates(entityClass, searchRequest);
+        SearchPlan<T> plan = searchPlan(searchRequest, candidates);
+        Object[] values = plan.bind(searchRequest, candidates);
+
+        TypedQuery<T> query = plan.createQuery(entityManager, checkSort(page.getSort()), values);
+        if (page.isPaged()) {
+            query.setFirstResult((int) page.getOffset()).setMaxResults(page.getPageSize());
+        }
+        List<T> rows = query.getResultList();
+        return PageableExecutionUtils.getPage(mapper.toDtoList(rows), page,
+                () -> plan.createCountQuery(entityManager, values).getSingleResult());
     }
 
+    /**
+     * Fetch one more row than the page to learn whether a next page exists, so no count query runs. The total
+     * is only added when asked for, from the {@link SearchCountCache}.
+     */
     @Override
-    @Transactional
-    public ByteArrayOutputStream importData(MultipartFile file) {
-        try {
-            // Get the configuration file path for this entity
-            String configPath = getImportConfigPath();
+    @Transactional(readOnly = true)
+    public SearchSlice<Res> searchSlice(BaseSearchRequest searchRequest, Pageable pageable, boolean withTotal) {
+        Pageable page = pageable != null && pageable.isPaged() ? pageable : Pageable.ofSize(20);
+        List<Object> candidates = searchIndex.candidates(entityClass, searchRequest);
+        SearchPlan<T> plan = searchPlan(searchRequest, candidates);
+        Object[] values = plan.bind(searchRequest, candidates);
+
+        List<T> rows = plan.createQuery(entityManager, checkSort(page.getSort()), values)
+                .setFirstResult((int) page.getOffset())
+                .setMaxResults(page.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > page.getPageSize();
+        if (hasNext) {
+            rows = rows.subList(0, page.getPageSize());
+        }
+        return SearchSlice.<Res>builder()
+                .content(mapper.toDtoList(rows))
+                .page(page.getPageNumber())
+                .size(rows.size())
+                .hasNext(hasNext)
+                .total(withTotal ? searchCountCache.getTotal(entityClass, searchRequest,
+                        () -> plan.createCountQuery(entityManager, values).getSingleResult()) : null)
+                .build();
+    }
 
-            // Read the configuration
-            SimpleExcelConfig config = excelConfigReader.readConfig(configPath);
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Res> search(BaseSearchRequest searchRequest, String cursor, int size, Sort sort) {
+        return seek(createSearchSpecification(searchRequest), cursor, size, sort);
+    }
 
-            // Import data from Excel using the configuration
-            List<T> entities = excelService.importFromExcelWithConfigFile(file, configPath, entityClass);
+    private SearchPlan<T> searchPlan(BaseSearchRequest searchRequest, List<Object> candidates) {
+        return SearchPlan.of(entityManager.getMetamodel(), entityClass, searchRequest, candidates != null,
+                searchTextBackfill.isBackfilled(entityClass));
+    }
 
-            // Validate the imported entities
-            Map<T, String> validationResults = validateEntities(entities, config);
+    private Sort checkSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            checkSortProperty(order.getProperty());
+        }
+        return sort;
+    }
+
+    /**
+     * Fetch one keyset page: the filter plus a seek predicate past the cursor, ordered by the sort with the
+     * {@code id} tie-breaker and limited to one row more than the page, which tells whether there is a next
+     * page without a count query. With an index on the sort columns every page is a short range scan.
+     */
+    private CursorPage<Res> seek(Specification<T> filter, String cursor, int size, Sort sort) {
+        Sort keyset = KeysetCursor.withTieBreaker(sort);
+        for (Sort.Order order : keyset) {
+            checkSortProperty(order.getProperty());
+        }
+        Specification<T> spec = cursor == null || cursor.isBlank()
+                ? filter
+                : filter.and(createSeekSpecification(keyset, KeysetCursor.decode(cursor, keyset)));
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = criteriaBuilder.createQuery(entityClass);
+        Root<T> root = query.from(entityClass);
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(keyset, root, criteriaBuilder));
+        List<T> rows = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
 
-            // Save valid entities to the database
-            for (T entity : entities) {
-                if (!validationResults.containsKey(entity)) {
-                    repository.save(entity);
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) {
+            rows = rows.subList(0, limit);
+        }
+        return CursorPage.<Res>builder()
+                .content(mapper.toDtoList(rows))
+                .size(rows.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? KeysetCursor.encode(keyset, rows.get(rows.size() - 1)) : null)
+                .build();
+    }
+
+    /**
+     * Only basic attributes of the entity itself can form a keyset
+     */
+    private void checkSortProperty(String property) {
+        try {
+            Attribute<? super T, ?> attribute = entityManager.getMetamodel().entity(entityClass).getAttribute(property);
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                throw new AppException(ErrorCode.INVALID_SORT_PROPERTY);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_SORT_PROPERTY);
+        }
+    }
+
+    /**
+     * Create the seek predicate of a keyset page: rows that sort after the last row of the previous page.
+     * For sort keys k1..kn this is {@code k1 > v1 OR (k1 = v1 AND k2 > v2) OR ...}, with "after" flipped for
+     * descending keys. Nulls sort as MySQL does, first in ascending and last in descending order.
+     *
+     * @param keyset     Sort with the {@code id} tie-breaker
+     * @param lastValues Sort key of the last row of the previous page, one value per order
+     * @return Seek specification
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Specification<T> createSeekSpecification(Sort keyset, String[] lastValues) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> alternatives = new ArrayList<>();
+            List<Predicate> equalPrefix = new ArrayList<>();
+            int i = 0;
+            for (Sort.Order order : keyset) {
+                Path<Comparable> path = root.get(order.getProperty());
+                Comparable value = (Comparable) KeysetCursor.convert(lastValues[i++], path.getJavaType());
+
+                Predicate after;
+                if (order.isAscending()) {
+                    after = value == null ? criteriaBuilder.isNotNull(path) : criteriaBuilder.greaterThan(path, value);
+                } else {
+                    // Nothing sorts after null in descending order
+                    after = value == null ? null : criteriaBuilder.or(criteriaBuilder.lessThan(path, value), criteriaBuilder.isNull(path));
                 }
+                if (after != null) {
+                    List<Predicate> terms = new ArrayList<>(equalPrefix);
+                    terms.add(after);
+                    alternatives.add(criteriaBuilder.and(terms.toArray(new Predicate[0])));
+                }
+                equalPrefix.add(value == null ? criteriaBuilder.isNull(path) : criteriaBuilder.equal(path, value));
             }
+            return criteriaBuilder.or(alternatives.toArray(new Predicate[0]));
+        };
+    }
 
-            // Export the data with validation results
-            return excelService.exportToExcelWithConfigFileAndResults(entities, configPath, validationResults);
+    @Override
+    public ByteArrayOutputStream importData(MultipartFile file) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        importData(file, ImportMode.INSERT, FileFormat.XLSX, outputStream);
+        return outputStream;
+    }
+
+    @Override
+    public void importData(MultipartFile file, ImportMode mode, FileFormat resultFormat, OutputStream outputStream) {
+        // Get the configuration file path for this entity
+        String configPath = getImportConfigPath();
+
+        // Read the configuration
+        SimpleExcelConfig config = excelConfigReader.readConfig(configPath);
+        checkImportMode(config, mode);
+
+        try {
+            // Import data from Excel using the configuration, validating and saving while rows are read
+            ImportProgress progress = ImportProgress.untracked();
+            runImport(rowConsumer -> excelService.importRows(file, config, entityClass, rowConsumer),
+                    config, mode, resultFormat, outputStream, progress);
+            if (mode == ImportMode.UPSERT) {
+                log.info("Upserted {} {} rows: {} inserted, {} updated, {} unchanged, {} failed",
+                        progress.getRowsSaved(), entityClass.getSimpleName(), progress.getRowsInserted(),
+                        progress.getRowsUpdated(), progress.getRowsUnchanged(), progress.getRowsFailed());
+            }
+        } catch (AppException e) {
+            // Upload limits and other client errors keep their error code
+            throw e;
         } catch (Exception e) {
             log.error("Error importing data for {}: {}", entityClass.getSimpleName(), e.getMessage(), e);
             throw new RuntimeException("Failed to import data: " + e.getMessage(), e);
@@ -137,164 +366,338 @@ public abstract class BaseServiceImpl<T extends BaseEntity, ID, Req extends Base
     }
 
     @Override
+    public InputStream importData(MultipartFile file, ImportMode mode, FileFormat resultFormat) {
+        java.nio.file.Path result;
+        try {
+            Files.createDirectories(importLimits.getSpoolDir());
+            result = Files.createTempFile(importLimits.getSpoolDir(), "import-result-", "." + resultFormat.getExtension());
+        } catch (IOException e) {
+            log.error("Error creating import result file for {}", entityClass.getSimpleName(), e);
+            throw new RuntimeException("Failed to store import result", e);
+        }
+
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(result)) {
+                importData(file, mode, resultFormat, outputStream);
+            }
+            return Files.newInputStream(result, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            deleteQuietly(result);
+            log.error("Error spooling import result for {}", entityClass.getSimpleName(), e);
+            throw new RuntimeException("Failed to store import result", e);
+        } catch (RuntimeException e) {
+            deleteQuietly(result);
+            throw e;
+        }
+    }
+
+    @Override
+    public ImportJobResponse importDataAsync(MultipartFile file, ImportMode mode, FileFormat resultFormat) {
+        // Reject an upsert without a key before the upload is queued
+        checkImportMode(excelConfigReader.readConfig(getImportConfigPath()), mode);
+
+        return importJobService.submit(entityClass.getSimpleName(), file, mode, resultFormat, (source, progress, outputStream) -> {
+            SimpleExcelConfig config = excelConfigReader.readConfig(getImportConfigPath());
+            runImport(rowConsumer -> excelService.importRows(source, config, entityClass, rowConsumer),
+                    config, mode, resultFormat, outputStream, progress);
+        });
+    }
+
+    @Override
+    public ImportJobResponse getImportJob(String jobId) {
+        return importJobService.getJob(entityClass.getSimpleName(), jobId);
+    }
+
+    @Override
+    public InputStream openImportResult(String jobId) {
+        return importJobService.openResult(entityClass.getSimpleName(), jobId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public ByteArrayOutputStream exportData(BaseSearchRequest searchRequest, Pageable pageable) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportData(searchRequest, pageable, FileFormat.XLSX, outputStream);
+        return outputStream;
+    }
+
+    /**
+     * Export matching rows through a forward-only server-side cursor. Only the columns of the export
+     * configuration are selected, as a tuple projection, so no entities are hydrated or tracked. Rows are
+     * fetched in batches of the configured batch size and written as they arrive. The sort of the pageable
+     * is applied; paging is not, since an export covers every matching row. With {@code partitions} set in
+     * the configuration, unsorted exports are split into id ranges read in parallel by the {@link ParallelExporter}.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportData(BaseSearchRequest searchRequest, Pageable pageable, FileFormat format, OutputStream outputStream) {
         try {
-            // Get the configuration file path for this entity
-            String configPath = getExportConfigPath();
-
-            // Get data based on search criteria
-            List<T> entities;
-            if (searchRequest != null) {
-                Specification<T> spec = createSearchSpecification(searchRequest);
-                entities = repository.findAll(spec);
-            } else {
-                entities = repository.findByIsDeletedFalse();
+            // Get the configuration for this entity
+            SimpleExcelConfig config = getExportConfig();
+
+            // Export rows in the requested format as the cursors advance
+            try (SheetWriter sheetWriter = format.newWriter(config, outputStream)) {
+                exportRows(searchRequest, pageable, config, sheetWriter);
+                sheetWriter.finish();
             }
+        } catch (Exception e) {
+            log.error("Error exporting data for {}: {}", entityClass.getSimpleName(), e.getMessage(), e);
+            throw new RuntimeException("Failed to export data: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void checkExport(BaseSearchRequest searchRequest, Pageable pageable) {
+        // Resolving the configuration and binding the criteria throw what the export itself would
+        new ExportProjection<>(entityManager.getMetamodel(), entityClass, getExportConfig());
+        searchPlan(searchRequest, null).bind(searchRequest, null);
+        if (pageable != null) {
+            checkSort(pageable.getSort());
+        }
+    }
 
-            // Export data to Excel
-            return excelService.exportToExcelWithConfigFile(entities, configPath);
+    @Override
+    @Transactional(readOnly = true)
+    public void exportData(BaseSearchRequest searchRequest, Pageable pageable, SheetWriter sheetWriter) {
+        try {
+            exportRows(searchRequest, pageable, getExportConfig(), sheetWriter);
         } catch (Exception e) {
             log.error("Error exporting data for {}: {}", entityClass.getSimpleName(), e.getMessage(), e);
             throw new RuntimeException("Failed to export data: " + e.getMessage(), e);
         }
     }
 
-    /**
-     * Create search specification based on the search request
-     *
-     * @param searchRequest Search request
-     * @return Specification object
-     */
-    protected Specification<T> createSearchSpecification(BaseSearchRequest searchRequest) {
-        return (root, query, criteriaBuilder) -> {
-            if (searchRequest == null) {
-                return null;
-            }
+    @Override
+    public SimpleExcelConfig getExportConfig() {
+        return excelConfigReader.readConfig(getExportConfigPath());
+    }
 
-            // Start with a base predicate that excludes deleted records unless includeDeleted is true
-            if (searchRequest.getIncludeDeleted() == null || !searchRequest.getIncludeDeleted()) {
-                return criteriaBuilder.equal(root.get("isDeleted"), false);
+    @Override
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    private void exportRows(BaseSearchRequest searchRequest, Pageable pageable, SimpleExcelConfig config,
+                            SheetWriter sheetWriter) throws Exception {
+        int fetchSize = config.getBatchSize() > 0 ? config.getBatchSize() : DEFAULT_BATCH_SIZE;
+
+        // Project the configured columns on top of the search criteria
+        Specification<T> filter = createSearchSpecification(searchRequest);
+        ExportProjection<T> projection = new ExportProjection<>(entityManager.getMetamodel(), entityClass, config);
+        Sort sort = pageable != null ? pageable.getSort() : Sort.unsorted();
+
+        sheetWriter.writeHeader();
+        if (config.getPartitions() > 1 && isIdOrder(sort)) {
+            parallelExporter.export(projection, entityClass, filter, config.getPartitions(), fetchSize, sheetWriter);
+        } else {
+            // The cursor lives on a connection of the export pool, the request pool never fetches with cursors
+            try (ExportSessions.ExportSession session = exportSessions.open();
+                 Stream<Tuple> rows = projection.createQuery(session.getEntityManager(), filter, sort, fetchSize)
+                         .getResultStream()) {
+                projection.read(session.getEntityManager(), rows, fetchSize, sheetWriter::writeRow);
             }
+        }
+    }
+
+    /**
+     * Partitions are merged in id order, so the parallel export only preserves unsorted or id-ascending exports
+     */
+    private static boolean isIdOrder(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return orders.isEmpty()
+                || (orders.size() == 1 && "id".equals(orders.get(0).getProperty()) && orders.get(0).isAscending());
+    }
 
-            // Build a list of predicates based on the search criteria
-            List<Predicate> predicates = new ArrayList<>();
+    /**
+     * Run an import through the {@link ImportPipeline}: rows are validated in parallel chunks while the file
+     * is still being read, and each chunk is saved in its own transaction and appended to the result workbook
+     * in file order. Chunks committed before a failure stay committed. An upsert writes each chunk through
+     * the {@link UpsertWriter} instead of saving it as new entities.
+     * <p>
+     * Rows travel as converted cell values staged column-wise in a {@link ColumnarChunk}. The column checks
+     * and the uniqueness checks run over the staged columns; entities are only materialized for the rows
+     * that pass them, for custom validation and saving.
+     *
+     * @param source       Row value source
+     * @param config       Excel configuration
+     * @param mode         Insert or upsert
+     * @param resultFormat File format of the validation results
+     * @param outputStream Target stream for the file with validation results
+     * @param progress     Progress to update
+     */
+    private void runImport(
+            ImportPipeline.Source source,
+            SimpleExcelConfig config,
+            ImportMode mode,
+            FileFormat resultFormat,
+            OutputStream outputStream,
+            ImportProgress progress) throws Exception {
+        int batchSize = config.getBatchSize() > 0 ? config.getBatchSize() : DEFAULT_BATCH_SIZE;
+        EntityAccessor<T> accessor = EntityAccessorRegistry.get(entityClass, config);
+        ValidationPlan<T> plan = ValidationPlan.of(entityClass, config);
+        UpsertWriter<T> upsertWriter = mode == ImportMode.UPSERT ? new UpsertWriter<>(entityManager, entityClass, config) : null;
+        UniquenessChecker<T> uniquenessChecker = new UniquenessChecker<>(entityManager, entityClass, config, accessor,
+                upsertWriter != null ? upsertWriter.getKeyField() : null);
+        Object[] values = new Object[accessor.size()];
+        boolean[] masked = new boolean[accessor.size()];
+        List<String> maskedFields = getResultMaskedFields();
+        for (int column = 0; column < masked.length; column++) {
+            masked[column] = maskedFields.contains(config.getColumn().get(column).getField());
+        }
+        // Rows an upsert updates keep the fields it does not write, so their indexed values are read back
+        boolean indexUpsertedEntities = upsertWriter == null
+                || getIndexedSearchProperties().stream().allMatch(upsertWriter::updates);
+
+        ImportPipeline.Source countingSource = rowConsumer -> source.read((row, rowIndex) -> {
+            progress.rowRead();
+            rowConsumer.accept(row, rowIndex);
+        });
+
+        ImportPipeline.Validator<T> validator = (cells, errors) -> {
+            // Resolve unique columns of the chunk against the database, O(columns) round trips
+            uniquenessChecker.prefetch(cells);
+            List<T> rows = validateChunk(cells, errors, plan, accessor, uniquenessChecker);
+            prepareChunk(rows, errors, upsertWriter != null ? upsertWriter.getKeyField() : null);
+            return rows;
+        };
 
-            // Add predicates for each search criterion
-            for (BaseSearchRequest.SearchCriteria criterion : searchRequest.getCriteria()) {
-                if (criterion == null || criterion.getProperty() == null || criterion.getOperator() == null) {
-                    continue;
+        try (SheetWriter sheetWriter = resultFormat.newWriter(config, outputStream)) {
+            sheetWriter.writeHeader(SheetWriter.RESULT_HEADER);
+
+            ImportPipeline.Sink<T> sink = (rows, cells, errors) -> {
+                List<T> valid = new ArrayList<>(rows.size());
+                int failed = 0;
+                for (int i = 0; i < rows.size(); i++) {
+                    // Duplicates inside the file are resolved here, in file order, so the first occurrence wins
+                    String duplicateError = uniquenessChecker.checkDuplicates(cells, i, errors[i] == null);
+                    if (duplicateError != null) {
+                        errors[i] = errors[i] == null ? duplicateError.trim() : errors[i] + " " + duplicateError.trim();
+                    }
+                    if (errors[i] == null) {
+                        valid.add(rows.get(i));
+                    } else {
+                        failed++;
+                    }
+                }
+                progress.rowsValidated(rows.size(), failed);
+
+                if (upsertWriter != null) {
+                    // Insert or update valid entities of the chunk in multi-row statements
+                    String auditor = auditorAware.getCurrentAuditor().orElse(null);
+                    UpsertWriter.Result result = transactionTemplate.execute(
+                            status -> upsertWriter.write(entityManager, valid, auditor));
+                    if (!valid.isEmpty()) {
+                        progress.rowsUpserted(result.getInserted(), result.getUpdated(), result.getUnchanged());
+                    }
+                    if (indexUpsertedEntities) {
+                        valid.forEach(entity -> searchIndex.put(entityClass, entity));
+                    } else {
+                        searchIndex.reload(entityClass, valid.stream().map(BaseEntity::getId).toList());
+                    }
+                } else {
+                    // Save valid entities of the chunk as one JDBC batch
+                    List<T> saved = new ArrayList<>(valid);
+                    transactionTemplate.executeWithoutResult(status -> saveChunk(valid));
+                    if (!saved.isEmpty()) {
+                        progress.rowsSaved(saved.size());
+                    }
+                    saved.forEach(entity -> searchIndex.put(entityClass, entity));
                 }
 
-                Predicate predicate = createPredicate(root, criteriaBuilder, criterion);
-                if (predicate != null) {
-                    predicates.add(predicate);
+                // Append the chunk with validation results, as uploaded rather than as prepared for saving
+                for (int i = 0; i < cells.size(); i++) {
+                    for (int column = 0; column < values.length; column++) {
+                        values[column] = masked[column] ? null : cells.get(i, column);
+                    }
+                    sheetWriter.writeRow(values, errors[i]);
                 }
-            }
+            };
 
-            // Combine all predicates with AND
-            return predicates.isEmpty() ? null : criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+            try {
+                importPipelineExecutor.run(batchSize, accessor.size(), countingSource, validator, sink);
+            } finally {
+                // Chunks saved before a failure count too
+                searchCountCache.invalidate(entityClass);
+            }
+            sheetWriter.finish();
+        }
     }
 
     /**
-     * Create a predicate for a single search criterion
+     * Prepare a validated chunk for saving, such as encoding values. Called concurrently on the validator
+     * threads of an import, so implementations must be thread-safe. The result file is written from the
+     * uploaded cells, so prepared values never appear in it.
      *
-     * @param root            Root path
-     * @param criteriaBuilder Criteria builder
-     * @param criterion       Search criterion
-     * @return Predicate
+     * @param rows      Entities of the chunk by row, null for some rejected rows
+     * @param errors    Error message per row, null for the valid rows to prepare
+     * @param upsertKey Field rows are matched on in an upsert import, null for a plain insert
      */
-    protected Predicate createPredicate(jakarta.persistence.criteria.Root<T> root,
-                                        jakarta.persistence.criteria.CriteriaBuilder criteriaBuilder,
-                                        BaseSearchRequest.SearchCriteria criterion) {
-        String property = criterion.getProperty();
-        BaseSearchRequest.SearchOperator operator = criterion.getOperator();
-        String value = criterion.getValue();
-        BaseSearchRequest.FieldType type = criterion.getType();
-
-        // Handle null checks
-        if (operator == BaseSearchRequest.SearchOperator.IS_NULL) {
-            return criteriaBuilder.isNull(root.get(property));
-        }
+    protected void prepareChunk(List<T> rows, String[] errors, String upsertKey) {
+        // Nothing to prepare by default
+    }
 
-        if (operator == BaseSearchRequest.SearchOperator.IS_NOT_NULL) {
-            return criteriaBuilder.isNotNull(root.get(property));
+    private static void deleteQuietly(java.nio.file.Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Cannot delete {}: {}", path, e.getMessage());
         }
+    }
 
-        // Handle value-based operators
-        if (value == null || value.isEmpty()) {
-            return null;
+    private void checkImportMode(SimpleExcelConfig config, ImportMode mode) {
+        if (mode == ImportMode.UPSERT && UpsertWriter.keyField(config) == null) {
+            throw new AppException(ErrorCode.UPSERT_KEY_NOT_MAPPED);
         }
+    }
 
-        // Convert value to the appropriate type
-        Object typedValue = convertValue(value, type);
-        if (typedValue == null) {
-            return null;
+    /**
+     * Persist a chunk of new entities as one JDBC batch, then clear the persistence context
+     * so managed entities and their snapshots do not pile up over a large import
+     *
+     * @param chunk Entities to save, emptied afterwards
+     */
+    protected void saveChunk(List<T> chunk) {
+        if (chunk.isEmpty()) {
+            return;
         }
+        repository.saveAll(chunk);
+        entityManager.flush();
+        entityManager.clear();
+        chunk.clear();
+    }
 
-        // Create predicate based on operator
-        switch (operator) {
-            case EQUALS:
-                return criteriaBuilder.equal(root.get(property), typedValue);
-            case NOT_EQUALS:
-                return criteriaBuilder.notEqual(root.get(property), typedValue);
-            case GREATER_THAN:
-                return criteriaBuilder.greaterThan(root.get(property), (Comparable) typedValue);
-            case LESS_THAN:
-                return criteriaBuilder.lessThan(root.get(property), (Comparable) typedValue);
-            case GREATER_THAN_OR_EQUALS:
-                return criteriaBuilder.greaterThanOrEqualTo(root.get(property), (Comparable) typedValue);
-            case LESS_THAN_OR_EQUALS:
-                return criteriaBuilder.lessThanOrEqualTo(root.get(property), (Comparable) typedValue);
-            case LIKE:
-                return criteriaBuilder.like(root.get(property), "%" + typedValue + "%");
-            case NOT_LIKE:
-                return criteriaBuilder.notLike(root.get(property), "%" + typedValue + "%");
-            case IN:
-                return root.get(property).in(Arrays.asList(typedValue.toString().split(",")));
-            case NOT_IN:
-                return criteriaBuilder.not(root.get(property).in(Arrays.asList(typedValue.toString().split(","))));
-            case BETWEEN:
-                String[] values = typedValue.toString().split(",");
-                if (values.length != 2) {
-                    return null;
-                }
-                return criteriaBuilder.between(root.get(property),
-                        (Comparable) convertValue(values[0], type),
-                        (Comparable) convertValue(values[1], type));
-            default:
-                return null;
-        }
+    /**
+     * Create search specification based on the search request, from the compiled {@link SearchPlan} of its
+     * shape. Rows that are deleted are excluded unless the request includes them.
+     *
+     * @param searchRequest Search request, null for all rows that are not deleted
+     * @return Specification object
+     */
+    protected Specification<T> createSearchSpecification(BaseSearchRequest searchRequest) {
+        List<Object> candidates = searchIndex.candidates(entityClass, searchRequest);
+        SearchPlan<T> plan = searchPlan(searchRequest, candidates);
+        return plan.toSpecification(plan.bind(searchRequest, candidates));
     }
 
-    protected Object convertValue(String value, BaseSearchRequest.FieldType type) {
-        if (value == null || value.isEmpty()) {
-            return null;
-        }
+    /**
+     * Get the String properties whose LIKE searches are narrowed by the in-memory {@link SearchIndex}.
+     * Indexed text is held in memory, so only short, often searched columns are worth it.
+     *
+     * @return Property names, none by default
+     */
+    protected List<String> getIndexedSearchProperties() {
+        return List.of();
+    }
 
-        try {
-            switch (type) {
-                case STRING:
-                    return value;
-                case NUMBER:
-                    return Double.parseDouble(value);
-                case BOOLEAN:
-                    return Boolean.parseBoolean(value);
-                case DATE:
-                    return LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE);
-                case DATETIME:
-                    return LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
-                case ENUM:
-                    // For enum types, we need to know the specific enum class
-                    // This is a simplified approach
-                    return value;
-                default:
-                    return value;
-            }
-        } catch (Exception e) {
-            log.warn("Error converting value '{}' to type {}: {}", value, type, e.getMessage());
-            return null;
-        }
+    /**
+     * Get the fields whose uploaded values are left blank in import result files, such as secrets. Result
+     * files are kept on disk until the job retention expires.
+     *
+     * @return Field names, none by default
+     */
+    protected List<String> getResultMaskedFields() {
+        return List.of();
     }
 
     /**
@@ -316,126 +719,122 @@ public abstract class BaseServiceImpl<T extends BaseEntity, ID, Req extends Base
      *
      * @param entities Entities to validate
      * @param config   Excel configuration
-     * @return Map of entity to validation error message
+     * @return Validation error message per entity, by position in the list, null for valid entities
      */
-    @SneakyThrows
-    protected Map<T, String> validateEntities(List<T> entities, SimpleExcelConfig config) {
-        Map<T, String> validationErrors = new HashMap<>();
-
-        for (T entity : entities) {
-            StringBuilder errorMessage = new StringBuilder();
-
-            for (SimpleExcelConfig.ColumnMapping column : config.getColumn()) {
-                String fieldName = column.getField();
-                Object value = getFieldValue(entity, fieldName);
-
-                // Required field validation
-                if (column.isRequired() && (value == null ||
-                        (value instanceof String && ((String) value).trim().isEmpty()))) {
-                    errorMessage.append(String.format("%s is required. ", column.getHeaderExcel()));
-                    continue;
-                }
-
-                // Type validation
-                if (value != null) {
-                    String typeError = validateFieldType(value, column);
-                    if (typeError != null) {
-                        errorMessage.append(typeError);
-                    }
-                }
-
-                // Unique validation
-                if (column.isUnique() && value != null) {
-                    String uniqueError = validateUniqueField(entity, fieldName, value);
-                    if (uniqueError != null) {
-                        errorMessage.append(uniqueError);
-                    }
-                }
-            }
-
-            // Add custom validation if needed
-            String customValidationError = validateEntity(entity);
-            if (customValidationError != null) {
-                errorMessage.append(customValidationError);
-            }
-
-            // If there are validation errors, add them to the map
-            if (errorMessage.length() > 0) {
-                validationErrors.put(entity, errorMessage.toString().trim());
+    protected String[] validateEntities(List<T> entities, SimpleExcelConfig config) {
+        String[] validationErrors = new String[entities.size()];
+        EntityAccessor<T> accessor = EntityAccessorRegistry.get(entityClass, config);
+        ValidationPlan<T> plan = ValidationPlan.of(entityClass, config);
+
+        // Resolve unique columns against the database up front, O(columns) round trips
+        UniquenessChecker<T> uniquenessChecker = new UniquenessChecker<>(entityManager, entityClass, config, accessor);
+        uniquenessChecker.prefetch(entities);
+
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            String errorMessage = validateRow(entity, plan, accessor, uniquenessChecker);
+            String duplicateError = uniquenessChecker.checkDuplicates(entity, errorMessage == null);
+            if (duplicateError != null) {
+                errorMessage = errorMessage == null ? duplicateError.trim() : errorMessage + " " + duplicateError.trim();
             }
+            validationErrors[i] = errorMessage;
         }
 
         return validationErrors;
     }
 
     /**
-     * Validate field type
+     * Validate a staged import chunk and materialize the entities of the rows that pass. The compiled column
+     * checks and the database uniqueness checks run column by column over the staged values; only the rows
+     * without an error become entities, for custom validation and saving. Duplicates inside the file are
+     * checked separately, in file order.
      *
-     * @param value  Field value
-     * @param column Column configuration
-     * @return Error message if validation fails, null otherwise
+     * @param cells             Staged cell values of the chunk
+     * @param errors            Receives the error message per row, left null for valid rows
+     * @param plan              Compiled column checks
+     * @param accessor          Compiled field access
+     * @param uniquenessChecker Uniqueness checker with the values of the chunk prefetched
+     * @return Entities of the chunk by row, null for the rows rejected by the column checks
      */
-    protected String validateFieldType(Object value, SimpleExcelConfig.ColumnMapping column) {
-        if (value == null) {
-            return null;
+    private List<T> validateChunk(
+            ColumnarChunk cells,
+            String[] errors,
+            ValidationPlan<T> plan,
+            EntityAccessor<T> accessor,
+            UniquenessChecker<T> uniquenessChecker) {
+        int size = cells.size();
+
+        // Required, type, length and format checks, then values already in the database
+        StringBuilder[] errorMessages = new StringBuilder[size];
+        for (int i = 0; i < accessor.size(); i++) {
+            boolean checkExisting = plan.isUnique(i) && uniquenessChecker.checksExisting(i);
+            for (int row = 0; row < size; row++) {
+                Object value = cells.get(row, i);
+                String error = plan.check(i, value);
+                if (error == null && value != null && checkExisting) {
+                    error = uniquenessChecker.checkExisting(cells, row, i, value);
+                }
+                if (error != null) {
+                    errorMessages[row] = errorMessages[row] == null ? new StringBuilder(error) : errorMessages[row].append(error);
+                }
+            }
         }
 
-        try {
-            // First check the basic type
-            switch (column.getType()) {
-                case STRING:
-                    if (!(value instanceof String)) {
-                        return String.format("%s must be text. ", column.getHeaderExcel());
-                    }
-                    break;
-                case NUMBER:
-                    if (!(value instanceof Number)) {
-                        return String.format("%s must be a number. ", column.getHeaderExcel());
-                    }
-                    break;
-                case DATE:
-                    if (!(value instanceof java.time.LocalDateTime)) {
-                        return String.format("%s must be a valid date. ", column.getHeaderExcel());
-                    }
-                    break;
-                case BOOLEAN:
-                    if (!(value instanceof Boolean)) {
-                        return String.format("%s must be true or false. ", column.getHeaderExcel());
-                    }
-                    break;
-                case EMAIL:
-                    if (!(value instanceof String) || !((String) value).matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-                        return String.format("%s must be a valid email address. ", column.getHeaderExcel());
-                    }
-                    break;
+        List<T> rows = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            if (errorMessages[row] != null) {
+                rows.add(null);
+                errors[row] = errorMessages[row].toString().trim();
+                continue;
             }
-        } catch (Exception e) {
-            log.warn("Error validating field type: {}", e.getMessage());
-            return String.format("Error validating %s: %s", column.getHeaderExcel(), e.getMessage());
-        }
+            T entity = accessor.newInstance();
+            for (int i = 0; i < accessor.size(); i++) {
+                accessor.setConverted(entity, i, cells.get(row, i));
+            }
+            rows.add(entity);
 
-        return null;
+            // Add custom validation if needed
+            String customValidationError = validateEntity(entity);
+            errors[row] = customValidationError != null ? customValidationError.trim() : null;
+        }
+        return rows;
     }
 
-    protected String validateUniqueField(Object entity, String fieldName, Object value) {
-        try {
-            // Convert field name to method name (e.g., "username" -> "existsByUsername")
-            String methodName = "existsBy" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+    /**
+     * Validate one entity: the compiled column checks, values already in the database and custom validation.
+     * Duplicates inside the file are checked separately, in file order.
+     *
+     * @param entity            Entity to validate
+     * @param plan              Compiled column checks
+     * @param accessor          Compiled field access
+     * @param uniquenessChecker Uniqueness checker with the values of the entity prefetched
+     * @return Error message if validation fails, null otherwise
+     */
+    private String validateRow(T entity, ValidationPlan<T> plan, EntityAccessor<T> accessor, UniquenessChecker<T> uniquenessChecker) {
+        StringBuilder errorMessage = null;
 
-            // Get the method from repository
-            java.lang.reflect.Method method = repository.getClass().getMethod(methodName, value.getClass());
+        for (int i = 0; i < accessor.size(); i++) {
+            Object value = accessor.get(entity, i);
 
-            // Invoke the method
-            Boolean exists = (Boolean) method.invoke(repository, value);
+            // Required, type, length and format checks
+            String error = plan.check(i, value);
 
-            if (Boolean.TRUE.equals(exists)) {
-                return String.format("%s already exists. ", fieldName);
+            // Unique validation against the database
+            if (error == null && value != null && plan.isUnique(i)) {
+                error = uniquenessChecker.checkExisting(entity, i, value);
+            }
+            if (error != null) {
+                errorMessage = errorMessage == null ? new StringBuilder(error) : errorMessage.append(error);
             }
-        } catch (Exception e) {
-            // If method doesn't exist or can't be invoked, log warning and return null
-            log.warn("Could not validate unique field {} with value {}: {}", fieldName, value, e.getMessage());
         }
-        return null;
+
+        // Add custom validation if needed
+        String customValidationError = validateEntity(entity);
+        if (customValidationError != null) {
+            errorMessage = errorMessage == null ? new StringBuilder(customValidationError) : errorMessage.append(customValidationError);
+        }
+
+        return errorMessage != null ? errorMessage.toString().trim() : null;
     }
 
     /**
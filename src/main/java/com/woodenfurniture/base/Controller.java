@@ -1,8 +1,10 @@
 package com.woodenfurniture.base;
 
-import org.springframework.core.io.Resource;
+import com.woodenfurniture.importjob.ImportJobResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,8 +12,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -43,6 +47,12 @@ public interface Controller<T extends BaseEntity, ID, Req extends BaseRequest<T>
     @GetMapping("/page")
     ResponseEntity<ApiResponse<Page<Res>>> getAll(Pageable pageable);
 
+    @GetMapping("/cursor")
+    ResponseEntity<ApiResponse<CursorPage<Res>>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Sort sort);
+
     @DeleteMapping("/{id}")
     ResponseEntity<ApiResponse<Void>> deleteById(@PathVariable ID id);
 
@@ -54,11 +64,43 @@ public interface Controller<T extends BaseEntity, ID, Req extends BaseRequest<T>
             @RequestParam(required = false) BaseSearchRequest searchRequest,
             Pageable pageable);
 
+    @GetMapping("/search/slice")
+    ResponseEntity<ApiResponse<SearchSlice<Res>>> searchSlice(
+            @RequestParam(required = false) BaseSearchRequest searchRequest,
+            Pageable pageable,
+            @RequestParam(defaultValue = "false") boolean withTotal);
+
+    @GetMapping("/search/cursor")
+    ResponseEntity<ApiResponse<CursorPage<Res>>> search(
+            @RequestParam(required = false) BaseSearchRequest searchRequest,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Sort sort);
+
     @PostMapping("/import")
-    ResponseEntity<Resource> importData(@RequestParam("file") MultipartFile file);
+    ResponseEntity<StreamingResponseBody> importData(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) ImportMode mode,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept);
+
+    @PostMapping("/import/async")
+    ResponseEntity<ApiResponse<ImportJobResponse>> importDataAsync(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) ImportMode mode,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept);
+
+    @GetMapping("/import/jobs/{jobId}")
+    ResponseEntity<ApiResponse<ImportJobResponse>> getImportJob(@PathVariable String jobId);
+
+    @GetMapping("/import/jobs/{jobId}/result")
+    ResponseEntity<StreamingResponseBody> downloadImportResult(@PathVariable String jobId);
 
     @GetMapping("/export")
-    ResponseEntity<Resource> exportData(
+    ResponseEntity<StreamingResponseBody> exportData(
             @RequestParam(required = false) BaseSearchRequest searchTerm,
-            Pageable pageable);
+            Pageable pageable,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept);
 } 
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.woodenfurniture.base;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) pagination. There is no total count, the next page is requested with
+ * {@code nextCursor} until {@code hasNext} is false.
+ *
+ * @param <T> Response type
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    List<T> content;
+    int size;
+    boolean hasNext;
+    /**
+     * Opaque token of the next page, null on the last page
+     */
+    String nextCursor;
+}
@@ -1,15 +1,20 @@
 package com.woodenfurniture.base;
 
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.base.excel.RowResults;
 import com.woodenfurniture.config.excel.SimpleExcelConfig;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 
 /**
- * Service for Excel import/export operations
+ * Service for Excel import/export operations.
+ * Imports detect the file format from the content: XLSX/XLS workbooks, CSV and gzipped CSV are accepted.
  */
 public interface ExcelService {
 
@@ -24,6 +29,69 @@ public interface ExcelService {
      */
     <T> List<T> importFromExcel(MultipartFile file, SimpleExcelConfig config, Class<T> entityClass);
 
+    /**
+     * Import data from Excel file, delivering entities one row at a time
+     *
+     * @param file        Excel file
+     * @param config      Excel mapping configuration
+     * @param entityClass Class of the entity to create
+     * @param rowConsumer Callback receiving each entity with its sheet row index (0-based)
+     * @param <T>         Entity type
+     */
+    <T> void importFromExcel(
+            MultipartFile file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<T> rowConsumer);
+
+    /**
+     * Import data from an Excel file on disk, delivering entities one row at a time
+     *
+     * @param file        Path to the Excel file
+     * @param config      Excel mapping configuration
+     * @param entityClass Class of the entity to create
+     * @param rowConsumer Callback receiving each entity with its sheet row index (0-based)
+     * @param <T>         Entity type
+     */
+    <T> void importFromExcel(
+            Path file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<T> rowConsumer);
+
+    /**
+     * Import data from Excel file, delivering the field values of one row at a time without creating entities
+     *
+     * @param file        Excel file
+     * @param config      Excel mapping configuration
+     * @param entityClass Class of the entity the values are converted for
+     * @param rowConsumer Callback receiving the values in mapping order with the sheet row index (0-based).
+     *                    The array is reused between rows.
+     * @param <T>         Entity type
+     */
+    <T> void importRows(
+            MultipartFile file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<Object[]> rowConsumer);
+
+    /**
+     * Import data from an Excel file on disk, delivering the field values of one row at a time without
+     * creating entities
+     *
+     * @param file        Path to the Excel file
+     * @param config      Excel mapping configuration
+     * @param entityClass Class of the entity the values are converted for
+     * @param rowConsumer Callback receiving the values in mapping order with the sheet row index (0-based).
+     *                    The array is reused between rows.
+     * @param <T>         Entity type
+     */
+    <T> void importRows(
+            Path file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<Object[]> rowConsumer);
+
     /**
      * Import data from Excel file with validation
      *
@@ -32,9 +100,9 @@ public interface ExcelService {
      * @param entityClass Class of the entity to create
      * @param validator   Function to validate the entity
      * @param <T>         Entity type
-     * @return Map of row index to validation error message
+     * @return Validation error messages by row index
      */
-    <T> Map<Integer, String> importFromExcelWithValidation(
+    <T> RowResults importFromExcelWithValidation(
             MultipartFile file,
             SimpleExcelConfig config,
             Class<T> entityClass,
@@ -59,9 +127,9 @@ public interface ExcelService {
      * @param entityClass Class of the entity to create
      * @param validator   Function to validate the entity
      * @param <T>         Entity type
-     * @return Map of row index to validation error message
+     * @return Validation error messages by row index
      */
-    <T> Map<Integer, String> importFromExcelWithConfigFileAndValidation(
+    <T> RowResults importFromExcelWithConfigFileAndValidation(
             MultipartFile file,
             String configPath,
             Class<T> entityClass,
@@ -82,14 +150,67 @@ public interface ExcelService {
      *
      * @param data    Data to export
      * @param config  Excel mapping configuration
-     * @param results Map of entity to result message
+     * @param results Result message per element of data, null for none
      * @param <T>     Entity type
      * @return Excel file as ByteArrayOutputStream
      */
     <T> ByteArrayOutputStream exportToExcelWithResults(
             List<T> data,
             SimpleExcelConfig config,
-            Map<T, String> results);
+            String[] results);
+
+    /**
+     * Export data to Excel file, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param config       Excel mapping configuration
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void exportToExcel(List<T> data, SimpleExcelConfig config, OutputStream outputStream);
+
+    /**
+     * Export data in the given file format, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param config       Excel mapping configuration
+     * @param format       File format
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void export(List<T> data, SimpleExcelConfig config, FileFormat format, OutputStream outputStream);
+
+    /**
+     * Export data to Excel file with results, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param config       Excel mapping configuration
+     * @param results      Result message per element of data, null for none
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void exportToExcelWithResults(
+            List<T> data,
+            SimpleExcelConfig config,
+            String[] results,
+            OutputStream outputStream);
+
+    /**
+     * Export data with results in the given file format, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param config       Excel mapping configuration
+     * @param results      Result message per element of data, null for none
+     * @param format       File format
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void exportWithResults(
+            List<T> data,
+            SimpleExcelConfig config,
+            String[] results,
+            FileFormat format,
+            OutputStream outputStream);
 
     /**
      * Export data to Excel file using configuration file
@@ -106,14 +227,50 @@ public interface ExcelService {
      *
      * @param data       Data to export
      * @param configPath Path to the configuration file
-     * @param results    Map of entity to result message
+     * @param results    Result message per element of data, null for none
      * @param <T>        Entity type
      * @return Excel file as ByteArrayOutputStream
      */
     <T> ByteArrayOutputStream exportToExcelWithConfigFileAndResults(
             List<T> data,
             String configPath,
-            Map<T, String> results);
+            String[] results);
+
+    /**
+     * Export data to Excel file using configuration file, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param configPath   Path to the configuration file
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void exportToExcelWithConfigFile(List<T> data, String configPath, OutputStream outputStream);
+
+    /**
+     * Export data in the given file format using configuration file, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param configPath   Path to the configuration file
+     * @param format       File format
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void exportWithConfigFile(List<T> data, String configPath, FileFormat format, OutputStream outputStream);
+
+    /**
+     * Export data to Excel file with results using configuration file, writing straight to an output stream
+     *
+     * @param data         Data to export
+     * @param configPath   Path to the configuration file
+     * @param results      Result message per element of data, null for none
+     * @param outputStream Target stream, left open
+     * @param <T>          Entity type
+     */
+    <T> void exportToExcelWithConfigFileAndResults(
+            List<T> data,
+            String configPath,
+            String[] results,
+            OutputStream outputStream);
 
     /**
      * Generate Excel template
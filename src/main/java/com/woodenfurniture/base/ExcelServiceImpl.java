@@ -1,26 +1,38 @@
 package com.woodenfurniture.base;
 
+import com.woodenfurniture.base.excel.EntityAccessor;
+import com.woodenfurniture.base.excel.CsvReader;
+import com.woodenfurniture.base.excel.EntityAccessorRegistry;
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.base.excel.RowResults;
+import com.woodenfurniture.base.excel.SheetWriter;
+import com.woodenfurniture.base.excel.StreamingSheetReader;
+import com.woodenfurniture.base.excel.StreamingSheetWriter;
 import com.woodenfurniture.config.excel.SimpleExcelConfig;
 import com.woodenfurniture.config.excel.SimpleExcelConfigReader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 @Slf4j
 @Service
@@ -28,12 +40,41 @@ import java.util.Map;
 public class ExcelServiceImpl implements ExcelService {
 
     private final SimpleExcelConfigReader excelConfigReader;
+    private final ImportLimits importLimits;
 
     @Override
     public <T> List<T> importFromExcel(MultipartFile file, SimpleExcelConfig config, Class<T> entityClass) {
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0); // Use the first sheet
-            return readSheet(sheet, config, entityClass);
+        List<T> entities = new ArrayList<>();
+        importFromExcel(file, config, entityClass, (entity, rowIndex) -> entities.add(entity));
+        return entities;
+    }
+
+    @Override
+    public <T> void importFromExcel(
+            MultipartFile file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<T> rowConsumer) {
+        importRows(file, config, entityClass, toEntities(entityClass, config, rowConsumer));
+    }
+
+    @Override
+    public <T> void importFromExcel(
+            Path file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<T> rowConsumer) {
+        importRows(file, config, entityClass, toEntities(entityClass, config, rowConsumer));
+    }
+
+    @Override
+    public <T> void importRows(
+            MultipartFile file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<Object[]> rowConsumer) {
+        try {
+            readSheet(file, config, entityClass, rowConsumer);
         } catch (IOException e) {
             log.error("Error importing Excel file", e);
             throw new RuntimeException("Failed to import Excel file", e);
@@ -41,24 +82,33 @@ public class ExcelServiceImpl implements ExcelService {
     }
 
     @Override
-    public <T> Map<Integer, String> importFromExcelWithValidation(
+    public <T> void importRows(
+            Path file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<Object[]> rowConsumer) {
+        try {
+            readSheet(file, config, entityClass, rowConsumer);
+        } catch (IOException e) {
+            log.error("Error importing Excel file {}", file, e);
+            throw new RuntimeException("Failed to import Excel file", e);
+        }
+    }
+
+    @Override
+    public <T> RowResults importFromExcelWithValidation(
             MultipartFile file,
             SimpleExcelConfig config,
             Class<T> entityClass,
             java.util.function.Function<T, String> validator) {
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0); // Use the first sheet
-            List<T> entities = readSheet(sheet, config, entityClass);
-            Map<Integer, String> validationErrors = new HashMap<>();
-
-            for (int i = 0; i < entities.size(); i++) {
-                T entity = entities.get(i);
+        RowResults validationErrors = new RowResults();
+        try {
+            readSheet(file, config, entityClass, toEntities(entityClass, config, (entity, rowIndex) -> {
                 String error = validator.apply(entity);
                 if (error != null) {
-                    validationErrors.put(i + config.getRowIndex() + 1, error);
+                    validationErrors.put(rowIndex, error);
                 }
-            }
-
+            }));
             return validationErrors;
         } catch (IOException e) {
             log.error("Error importing Excel file with validation", e);
@@ -73,7 +123,7 @@ public class ExcelServiceImpl implements ExcelService {
     }
 
     @Override
-    public <T> Map<Integer, String> importFromExcelWithConfigFileAndValidation(
+    public <T> RowResults importFromExcelWithConfigFileAndValidation(
             MultipartFile file,
             String configPath,
             Class<T> entityClass,
@@ -84,14 +134,25 @@ public class ExcelServiceImpl implements ExcelService {
 
     @Override
     public <T> ByteArrayOutputStream exportToExcel(List<T> data, SimpleExcelConfig config) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet(config.getName());
-            writeHeader(sheet, config);
-            writeData(sheet, data, config);
-            return writeWorkbook(workbook);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportToExcel(data, config, outputStream);
+        return outputStream;
+    }
+
+    @Override
+    public <T> void exportToExcel(List<T> data, SimpleExcelConfig config, OutputStream outputStream) {
+        export(data, config, FileFormat.XLSX, outputStream);
+    }
+
+    @Override
+    public <T> void export(List<T> data, SimpleExcelConfig config, FileFormat format, OutputStream outputStream) {
+        try (SheetWriter writer = format.newWriter(config, outputStream)) {
+            writer.writeHeader();
+            writeData(writer, data, config);
+            writer.finish();
         } catch (IOException e) {
-            log.error("Error exporting to Excel", e);
-            throw new RuntimeException("Failed to export to Excel", e);
+            log.error("Error exporting to {}", format, e);
+            throw new RuntimeException("Failed to export to " + format, e);
         }
     }
 
@@ -99,15 +160,35 @@ public class ExcelServiceImpl implements ExcelService {
     public <T> ByteArrayOutputStream exportToExcelWithResults(
             List<T> data,
             SimpleExcelConfig config,
-            Map<T, String> results) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet(config.getName());
-            writeHeader(sheet, config);
-            writeDataWithResults(sheet, data, config, results);
-            return writeWorkbook(workbook);
+            String[] results) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportToExcelWithResults(data, config, results, outputStream);
+        return outputStream;
+    }
+
+    @Override
+    public <T> void exportToExcelWithResults(
+            List<T> data,
+            SimpleExcelConfig config,
+            String[] results,
+            OutputStream outputStream) {
+        exportWithResults(data, config, results, FileFormat.XLSX, outputStream);
+    }
+
+    @Override
+    public <T> void exportWithResults(
+            List<T> data,
+            SimpleExcelConfig config,
+            String[] results,
+            FileFormat format,
+            OutputStream outputStream) {
+        try (SheetWriter writer = format.newWriter(config, outputStream)) {
+            writer.writeHeader(SheetWriter.RESULT_HEADER);
+            writeDataWithResults(writer, data, config, results);
+            writer.finish();
         } catch (IOException e) {
-            log.error("Error exporting to Excel with results", e);
-            throw new RuntimeException("Failed to export to Excel", e);
+            log.error("Error exporting to {} with results", format, e);
+            throw new RuntimeException("Failed to export to " + format, e);
         }
     }
 
@@ -117,21 +198,41 @@ public class ExcelServiceImpl implements ExcelService {
         return exportToExcel(data, config);
     }
 
+    @Override
+    public <T> void exportToExcelWithConfigFile(List<T> data, String configPath, OutputStream outputStream) {
+        exportWithConfigFile(data, configPath, FileFormat.XLSX, outputStream);
+    }
+
+    @Override
+    public <T> void exportWithConfigFile(List<T> data, String configPath, FileFormat format, OutputStream outputStream) {
+        SimpleExcelConfig config = excelConfigReader.readConfig(configPath);
+        export(data, config, format, outputStream);
+    }
+
     @Override
     public <T> ByteArrayOutputStream exportToExcelWithConfigFileAndResults(
             List<T> data,
             String configPath,
-            Map<T, String> results) {
+            String[] results) {
         SimpleExcelConfig config = excelConfigReader.readConfig(configPath);
         return exportToExcelWithResults(data, config, results);
     }
 
+    @Override
+    public <T> void exportToExcelWithConfigFileAndResults(
+            List<T> data,
+            String configPath,
+            String[] results,
+            OutputStream outputStream) {
+        SimpleExcelConfig config = excelConfigReader.readConfig(configPath);
+        exportToExcelWithResults(data, config, results, outputStream);
+    }
+
     @Override
     public ByteArrayOutputStream generateTemplate(SimpleExcelConfig config) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet(config.getName());
-            writeHeader(sheet, config);
-            return writeWorkbook(workbook);
+        try (StreamingSheetWriter writer = new StreamingSheetWriter(config)) {
+            writer.writeHeader();
+            return writeWorkbook(writer);
         } catch (IOException e) {
             log.error("Error generating Excel template", e);
             throw new RuntimeException("Failed to generate Excel template", e);
@@ -144,110 +245,213 @@ public class ExcelServiceImpl implements ExcelService {
         return generateTemplate(config);
     }
 
-    private <T> List<T> readSheet(Sheet sheet, SimpleExcelConfig config, Class<T> entityClass) {
-        List<T> entities = new ArrayList<>();
+    private <T> void readSheet(
+            MultipartFile file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<Object[]> rowConsumer) throws IOException {
+        // Uploads are parsed from disk, never from an in-memory copy: CSV is memory-mapped and workbooks are
+        // opened from the file
+        Path tempFile = importLimits.spool(file);
+        try {
+            readSheet(tempFile, config, entityClass, rowConsumer);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
 
-        // Find the header row
-        int headerRowIndex = config.getRowIndex();
-        Row headerRow = sheet.getRow(headerRowIndex);
-        if (headerRow == null) {
-            throw new IllegalArgumentException("Header row not found at index " + headerRowIndex);
+    private <T> void readSheet(
+            Path file,
+            SimpleExcelConfig config,
+            Class<T> entityClass,
+            ObjIntConsumer<Object[]> rowConsumer) throws IOException {
+        FileFormat format;
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            format = FileFormat.detect(inputStream);
         }
 
-        // Map header cells to column indices
-        Map<String, Integer> headerMap = new HashMap<>();
-        for (int i = config.getColumnIndex(); i < headerRow.getLastCellNum(); i++) {
-            Cell cell = headerRow.getCell(i);
-            if (cell != null) {
-                String headerValue = getCellValue(cell).toString();
-                headerMap.put(headerValue, i);
+        if (format != FileFormat.XLSX) {
+            // The header is the first CSV record, row and column offsets only apply to workbooks
+            SheetRowMapper rowMapper = new SheetRowMapper(
+                    config.toBuilder().rowIndex(0).columnIndex(0).build(), entityClass, importLimits, rowConsumer);
+            CsvReader.read(file, format == FileFormat.CSV_GZIP, importLimits.getMaxBytes(), rowMapper::mapRow);
+            rowMapper.finish();
+            return;
+        }
+
+        SheetRowMapper rowMapper = new SheetRowMapper(config, entityClass, importLimits, rowConsumer);
+        if (config.isStreaming() && FileMagic.valueOf(file.toFile()) == FileMagic.OOXML) {
+            log.debug("Reading {} import through the streaming sheet reader", config.getName());
+            StreamingSheetReader.read(file.toFile(), rowMapper::mapRow);
+        } else {
+            // Legacy .xls files have no event-model reader here, fall back to the workbook
+            try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
+                readSheet(workbook.getSheetAt(0), rowMapper);
             }
         }
 
-        // Read data rows
-        for (int i = headerRowIndex + 1; i <= sheet.getLastRowNum(); i++) {
+        rowMapper.finish();
+    }
+
+    private void readSheet(Sheet sheet, SheetRowMapper rowMapper) {
+        List<Object> cells = new ArrayList<>();
+        for (int i = sheet.getFirstRowNum(); i <= sheet.getLastRowNum(); i++) {
             Row row = sheet.getRow(i);
             if (row == null) {
                 continue;
             }
 
-            try {
-                T entity = entityClass.getDeclaredConstructor().newInstance();
-
-                // Map Excel columns to entity fields
-                for (SimpleExcelConfig.ColumnMapping mapping : config.getColumn()) {
-                    Integer columnIndex = headerMap.get(mapping.getHeaderExcel());
-                    if (columnIndex == null) {
-                        log.warn("Column '{}' not found in Excel file", mapping.getHeaderExcel());
-                        continue;
-                    }
-
-                    Cell cell = row.getCell(columnIndex);
-                    if (cell != null) {
-                        Object value = getCellValue(cell);
-                        setFieldValue(entity, mapping.getField(), value);
-                    }
-                }
-
-                entities.add(entity);
-            } catch (Exception e) {
-                log.error("Error processing row {}: {}", i + 1, e.getMessage());
+            cells.clear();
+            for (int j = 0; j < row.getLastCellNum(); j++) {
+                cells.add(getCellValue(row.getCell(j)));
             }
+            rowMapper.mapRow(i, cells);
         }
+    }
 
-        return entities;
+    /**
+     * Build an entity from each row of field values
+     */
+    private static <T> ObjIntConsumer<Object[]> toEntities(
+            Class<T> entityClass,
+            SimpleExcelConfig config,
+            ObjIntConsumer<T> rowConsumer) {
+        EntityAccessor<T> accessor = EntityAccessorRegistry.get(entityClass, config);
+        return (values, rowIndex) -> {
+            T entity;
+            try {
+                entity = accessor.newInstance();
+            } catch (IllegalStateException e) {
+                log.error("Error processing row {}: {}", rowIndex + 1, e.getMessage());
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                accessor.setConverted(entity, i, values[i]);
+            }
+            rowConsumer.accept(entity, rowIndex);
+        };
     }
 
-    private void writeHeader(Sheet sheet, SimpleExcelConfig config) {
-        Row headerRow = sheet.createRow(config.getRowIndex());
+    /**
+     * Maps sheet rows to field values, converted to the field types, using the column mapping of the
+     * configuration. Rows are fed one at a time, so the same mapping serves both the workbook and the
+     * streaming reader. The value array is reused between rows. The import is aborted once the data rows
+     * pass the row ceiling.
+     */
+    private static final class SheetRowMapper {
+
+        private final SimpleExcelConfig config;
+        private final EntityAccessor<?> accessor;
+        private final ImportLimits importLimits;
+        private final ObjIntConsumer<Object[]> rowConsumer;
+        private final Object[] values;
+        private int[] columnIndexes;
+        private int rows;
+
+        private SheetRowMapper(
+                SimpleExcelConfig config,
+                Class<?> entityClass,
+                ImportLimits importLimits,
+                ObjIntConsumer<Object[]> rowConsumer) {
+            this.config = config;
+            this.accessor = EntityAccessorRegistry.get(entityClass, config);
+            this.importLimits = importLimits;
+            this.rowConsumer = rowConsumer;
+            this.values = new Object[accessor.size()];
+        }
 
-        int columnIndex = config.getColumnIndex();
-        for (SimpleExcelConfig.ColumnMapping mapping : config.getColumn()) {
-            Cell cell = headerRow.createCell(columnIndex++);
-            cell.setCellValue(mapping.getHeaderExcel());
+        private void mapRow(int rowIndex, List<Object> cells) {
+            int headerRowIndex = config.getRowIndex();
+            if (rowIndex < headerRowIndex) {
+                return;
+            }
+            if (rowIndex == headerRowIndex) {
+                mapHeader(cells);
+                return;
+            }
+            if (columnIndexes == null) {
+                throw new IllegalArgumentException("Header row not found at index " + headerRowIndex);
+            }
+            importLimits.checkRows(++rows);
+
+            // Map Excel columns to entity fields
+            for (int i = 0; i < columnIndexes.length; i++) {
+                int columnIndex = columnIndexes[i];
+                values[i] = columnIndex >= 0 && columnIndex < cells.size()
+                        ? accessor.convert(i, cells.get(columnIndex))
+                        : null;
+            }
+
+            rowConsumer.accept(values, rowIndex);
         }
-    }
 
-    private <T> void writeData(Sheet sheet, List<T> data, SimpleExcelConfig config) {
-        int rowIndex = config.getRowIndex() + 1;
+        private void mapHeader(List<Object> cells) {
+            // Map header cells to column indices
+            Map<String, Integer> headerMap = new HashMap<>();
+            for (int i = config.getColumnIndex(); i < cells.size(); i++) {
+                Object value = cells.get(i);
+                if (value != null) {
+                    headerMap.put(value.toString(), i);
+                }
+            }
 
-        for (T entity : data) {
-            Row row = sheet.createRow(rowIndex++);
-            int columnIndex = config.getColumnIndex();
+            List<SimpleExcelConfig.ColumnMapping> mappings = config.getColumn();
+            columnIndexes = new int[mappings.size()];
+            for (int i = 0; i < mappings.size(); i++) {
+                Integer columnIndex = headerMap.get(mappings.get(i).getHeaderExcel());
+                if (columnIndex == null) {
+                    log.warn("Column '{}' not found in Excel file", mappings.get(i).getHeaderExcel());
+                }
+                columnIndexes[i] = columnIndex != null ? columnIndex : -1;
+            }
+        }
 
-            for (SimpleExcelConfig.ColumnMapping mapping : config.getColumn()) {
-                Cell cell = row.createCell(columnIndex++);
-                Object value = getFieldValue(entity, mapping.getField());
-                setCellValue(cell, value);
+        private void finish() {
+            if (columnIndexes == null) {
+                throw new IllegalArgumentException("Header row not found at index " + config.getRowIndex());
             }
         }
     }
 
-    private <T> void writeDataWithResults(Sheet sheet, List<T> data, SimpleExcelConfig config, Map<T, String> results) {
-        int rowIndex = config.getRowIndex() + 1;
+    private <T> void writeData(SheetWriter writer, List<T> data, SimpleExcelConfig config) {
+        if (data.isEmpty()) {
+            return;
+        }
+        EntityAccessor<T> accessor = accessorFor(data.get(0), config);
+        Object[] values = new Object[accessor.size()];
 
         for (T entity : data) {
-            Row row = sheet.createRow(rowIndex++);
-            int columnIndex = config.getColumnIndex();
-
-            // Write entity data
-            for (SimpleExcelConfig.ColumnMapping mapping : config.getColumn()) {
-                Cell cell = row.createCell(columnIndex++);
-                Object value = getFieldValue(entity, mapping.getField());
-                setCellValue(cell, value);
-            }
+            accessor.read(entity, values);
+            writer.writeRow(values);
+        }
+    }
 
-            // Write result if available
-            if (results.containsKey(entity)) {
-                Cell resultCell = row.createCell(columnIndex);
-                resultCell.setCellValue(results.get(entity));
-            }
+    private <T> void writeDataWithResults(
+            SheetWriter writer,
+            List<T> data,
+            SimpleExcelConfig config,
+            String[] results) {
+        if (data.isEmpty()) {
+            return;
+        }
+        EntityAccessor<T> accessor = accessorFor(data.get(0), config);
+        Object[] values = new Object[accessor.size()];
+
+        // Results are matched by position, so entities are never hashed or compared
+        for (int i = 0; i < data.size(); i++) {
+            accessor.read(data.get(i), values);
+            writer.writeRow(values, i < results.length ? results[i] : null);
         }
     }
 
-    private ByteArrayOutputStream writeWorkbook(Workbook workbook) throws IOException {
+    @SuppressWarnings("unchecked")
+    private <T> EntityAccessor<T> accessorFor(T entity, SimpleExcelConfig config) {
+        return EntityAccessorRegistry.get((Class<T>) entity.getClass(), config);
+    }
+
+    private ByteArrayOutputStream writeWorkbook(StreamingSheetWriter writer) throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
+        writer.write(outputStream);
         return outputStream;
     }
 
@@ -276,62 +480,4 @@ public class ExcelServiceImpl implements ExcelService {
                 return null;
         }
     }
-
-    private void setCellValue(Cell cell, Object value) {
-        if (value == null) {
-            cell.setBlank();
-            return;
-        }
-
-        if (value instanceof String) {
-            cell.setCellValue((String) value);
-        } else if (value instanceof Number) {
-            cell.setCellValue(((Number) value).doubleValue());
-        } else if (value instanceof Boolean) {
-            cell.setCellValue((Boolean) value);
-        } else if (value instanceof java.time.LocalDateTime) {
-            cell.setCellValue(((java.time.LocalDateTime) value).toString());
-        } else {
-            cell.setCellValue(value.toString());
-        }
-    }
-
-    private Object getFieldValue(Object obj, String fieldName) {
-        try {
-            Field field = obj.getClass().getDeclaredField(fieldName);
-            field.setAccessible(true);
-            return field.get(obj);
-        } catch (Exception e) {
-            log.error("Error getting field value for {}: {}", fieldName, e.getMessage());
-            return null;
-        }
-    }
-
-    private void setFieldValue(Object obj, String fieldName, Object value) {
-        try {
-            Field field = obj.getClass().getDeclaredField(fieldName);
-            field.setAccessible(true);
-
-            // Convert value to the appropriate type
-            if (value != null) {
-                if (field.getType() == String.class) {
-                    field.set(obj, value.toString());
-                } else if (field.getType() == Integer.class || field.getType() == int.class) {
-                    field.set(obj, ((Number) value).intValue());
-                } else if (field.getType() == Long.class || field.getType() == long.class) {
-                    field.set(obj, ((Number) value).longValue());
-                } else if (field.getType() == Double.class || field.getType() == double.class) {
-                    field.set(obj, ((Number) value).doubleValue());
-                } else if (field.getType() == Boolean.class || field.getType() == boolean.class) {
-                    field.set(obj, Boolean.valueOf(value.toString()));
-                } else if (field.getType() == java.time.LocalDateTime.class) {
-                    field.set(obj, java.time.LocalDateTime.parse(value.toString()));
-                } else {
-                    field.set(obj, value);
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error setting field value for {}: {}", fieldName, e.getMessage());
-        }
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Tuple projection of the export columns of a {@link SimpleExcelConfig}, so that an export selects only
+ * the mapped columns instead of hydrating managed entities. Basic attributes are selected directly and
+ * to-one associations through a left join. To-many associations are resolved per chunk of rows with one
+ * {@code IN} query each. Associations are rendered by the {@code name}, {@code code} or {@code id} of
+ * the associated entity, whichever exists first.
+ *
+ * @param <T> Entity type
+ */
+@Slf4j
+final class ExportProjection<T> {
+
+    private static final String ID = "id";
+    private static final String[] DISPLAY_ATTRIBUTES = {"name", "code", ID};
+
+    private enum Kind {
+        BASIC,
+        TO_ONE,
+        TO_MANY,
+        MISSING
+    }
+
+    private final Class<T> entityClass;
+    private final String[] fields;
+    private final Kind[] kinds;
+    private final String[] displayAttributes;
+    private final int[] tupleIndexes;
+    private final boolean hasToMany;
+
+    ExportProjection(Metamodel metamodel, Class<T> entityClass, SimpleExcelConfig config) {
+        this.entityClass = entityClass;
+
+        List<SimpleExcelConfig.ColumnMapping> columns = config.getColumn();
+        int size = columns.size();
+        this.fields = new String[size];
+        this.kinds = new Kind[size];
+        this.displayAttributes = new String[size];
+        this.tupleIndexes = new int[size];
+
+        EntityType<T> entityType = metamodel.entity(entityClass);
+        boolean toMany = false;
+        int tupleIndex = 1; // Index 0 is the id
+        for (int i = 0; i < size; i++) {
+            fields[i] = columns.get(i).getField();
+            tupleIndexes[i] = -1;
+
+            Attribute<? super T, ?> attribute = findAttribute(entityType, fields[i]);
+            if (attribute == null) {
+                log.warn("Field '{}' not found on {}, exported as empty", fields[i], entityClass.getSimpleName());
+                kinds[i] = Kind.MISSING;
+                continue;
+            }
+
+            switch (attribute.getPersistentAttributeType()) {
+                case BASIC:
+                case EMBEDDED:
+                    kinds[i] = Kind.BASIC;
+                    tupleIndexes[i] = tupleIndex++;
+                    break;
+                case MANY_TO_ONE:
+                case ONE_TO_ONE:
+                    kinds[i] = Kind.TO_ONE;
+                    displayAttributes[i] = displayAttribute(((SingularAttribute<? super T, ?>) attribute).getType());
+                    tupleIndexes[i] = tupleIndex++;
+                    break;
+                default:
+                    kinds[i] = Kind.TO_MANY;
+                    displayAttributes[i] = displayAttribute(((PluralAttribute<? super T, ?, ?>) attribute).getElementType());
+                    toMany = true;
+                    break;
+            }
+        }
+        this.hasToMany = toMany;
+    }
+
+    /**
+     * Create the projected query, read-only and fetched in batches
+     *
+     * @param entityManager Entity manager running the query
+     * @param filter        Filter on the entity, may be null
+     * @param sort          Sort order, may be null
+     * @param fetchSize     JDBC fetch size
+     * @return Tuple query selecting the id followed by the directly selectable columns
+     */
+    TypedQuery<Tuple> createQuery(EntityManager entityManager, Specification<T> filter, Sort sort, int fetchSize) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get(ID));
+        for (int i = 0; i < fields.length; i++) {
+            if (kinds[i] == Kind.BASIC) {
+                selections.add(root.get(fields[i]));
+            } else if (kinds[i] == Kind.TO_ONE) {
+                Join<T, ?> join = root.join(fields[i], JoinType.LEFT);
+                selections.add(displayAttributes[i] != null ? join.get(displayAttributes[i]) : join);
+            }
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = filter != null ? filter.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort != null && sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false);
+    }
+
+    /**
+     * Read projected rows in chunks, resolving to-many columns once per chunk
+     *
+     * @param entityManager Entity manager that ran the query
+     * @param tuples        Rows of the projected query
+     * @param chunkSize     Rows per chunk
+     * @param rowConsumer   Receives the cell values of each row in column mapping order, a new array per row
+     */
+    void read(EntityManager entityManager, Stream<Tuple> tuples, int chunkSize, Consumer<Object[]> rowConsumer) {
+        Iterator<Tuple> iterator = tuples.iterator();
+        List<Tuple> chunk = new ArrayList<>(chunkSize);
+
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                readChunk(entityManager, chunk, rowConsumer);
+                chunk.clear();
+            }
+        }
+    }
+
+    private void readChunk(EntityManager entityManager, List<Tuple> chunk, Consumer<Object[]> rowConsumer) {
+        List<Map<Object, String>> toManyValues = hasToMany ? fetchToMany(entityManager, chunk) : null;
+
+        for (Tuple tuple : chunk) {
+            Object id = tuple.get(0);
+            Object[] values = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                if (tupleIndexes[i] >= 0) {
+                    values[i] = tuple.get(tupleIndexes[i]);
+                } else if (kinds[i] == Kind.TO_MANY) {
+                    values[i] = toManyValues.get(i).get(id);
+                }
+            }
+            rowConsumer.accept(values);
+        }
+    }
+
+    private List<Map<Object, String>> fetchToMany(EntityManager entityManager, List<Tuple> chunk) {
+        List<Object> ids = new ArrayList<>(chunk.size());
+        for (Tuple tuple : chunk) {
+            ids.add(tuple.get(0));
+        }
+
+        List<Map<Object, String>> result = new ArrayList<>(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            result.add(kinds[i] == Kind.TO_MANY ? fetchToMany(entityManager, i, ids) : null);
+        }
+        return result;
+    }
+
+    private Map<Object, String> fetchToMany(EntityManager entityManager, int column, List<Object> ids) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        Join<T, ?> join = root.join(fields[column]);
+        query.multiselect(root.get(ID), displayAttributes[column] != null ? join.get(displayAttributes[column]) : join)
+                .where(root.get(ID).in(ids));
+
+        Map<Object, String> joined = new HashMap<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Object value = tuple.get(1);
+            if (value != null) {
+                joined.merge(tuple.get(0), value.toString(), (left, right) -> left + ", " + right);
+            }
+        }
+        return joined;
+    }
+
+    private static <X> Attribute<? super X, ?> findAttribute(ManagedType<X> type, String name) {
+        try {
+            return type.getAttribute(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String displayAttribute(Type<?> type) {
+        if (!(type instanceof ManagedType)) {
+            return null; // Basic element, rendered as is
+        }
+        for (String name : DISPLAY_ATTRIBUTES) {
+            if (findAttribute((ManagedType<?>) type, name) != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,93 @@
+package com.woodenfurniture.base;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Read-only sessions for export queries on a small dedicated connection pool with MySQL cursor fetch
+ * ({@code useCursorFetch}) enabled, so that a query with a fetch size reads its rows through a server-side
+ * cursor in batches of that size. Only exports need cursors; the request pool keeps the driver defaults, where
+ * short queries are fetched in one round trip.
+ */
+@Component
+public class ExportSessions {
+
+    private final SessionFactory sessionFactory;
+    private final HikariDataSource dataSource;
+
+    @Autowired
+    public ExportSessions(
+            EntityManagerFactory entityManagerFactory,
+            DataSourceProperties dataSourceProperties,
+            @Value("${export.cursor.pool-size:8}") int poolSize) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        // Not a bean, so the request pool stays the only DataSource of the context
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("export-cursor");
+        dataSource.setMaximumPoolSize(Math.max(1, poolSize));
+        dataSource.setMinimumIdle(0);
+        dataSource.setReadOnly(true);
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+    }
+
+    /**
+     * Open a read-only session on a cursor connection, waiting for a free connection if the pool is exhausted
+     *
+     * @return Export session, to be closed by the caller
+     * @throws SQLException if no connection can be obtained
+     */
+    ExportSession open() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            Session session = sessionFactory.withOptions().connection(connection).openSession();
+            session.setDefaultReadOnly(true);
+            return new ExportSession(session, connection);
+        } catch (RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dataSource.close();
+    }
+
+    /**
+     * Session on a connection of the cursor pool. Closing it returns the connection to the pool.
+     */
+    static final class ExportSession implements AutoCloseable {
+
+        private final Session session;
+        private final Connection connection;
+
+        private ExportSession(Session session, Connection connection) {
+            this.session = session;
+            this.connection = connection;
+        }
+
+        EntityManager getEntityManager() {
+            return session;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                session.close();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
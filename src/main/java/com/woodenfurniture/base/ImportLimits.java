@@ -0,0 +1,88 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Ceilings on the uploads an import accepts. Uploads are spooled to disk and parsed from the file, never
+ * buffered in memory; an upload above the byte ceiling is rejected before it is parsed, and the row ceiling
+ * aborts an import as soon as the reader passes it. The byte ceiling also applies to the decompressed content
+ * of gzipped CSV. A ceiling of 0 or less disables the check.
+ */
+@Slf4j
+@Getter
+@Component
+public class ImportLimits {
+
+    private final long maxBytes;
+    private final int maxRows;
+    private final Path spoolDir;
+
+    @Autowired
+    public ImportLimits(
+            @Value("${import.upload.max-bytes:104857600}") long maxBytes,
+            @Value("${import.upload.max-rows:1000000}") int maxRows,
+            @Value("${import.upload.spool-dir:}") String spoolDir) {
+        this.maxBytes = maxBytes;
+        this.maxRows = maxRows;
+        this.spoolDir = (spoolDir == null || spoolDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"))
+                : Paths.get(spoolDir)).toAbsolutePath();
+    }
+
+    /**
+     * Reject an upload above the byte ceiling
+     *
+     * @param file Uploaded file
+     */
+    public void checkSize(MultipartFile file) {
+        if (maxBytes > 0 && file.getSize() > maxBytes) {
+            log.warn("Rejecting upload {} of {} bytes, the limit is {}", file.getOriginalFilename(), file.getSize(), maxBytes);
+            throw new AppException(ErrorCode.IMPORT_FILE_TOO_LARGE);
+        }
+    }
+
+    /**
+     * Reject an import once its data rows pass the row ceiling
+     *
+     * @param rows Data rows read so far
+     */
+    public void checkRows(int rows) {
+        if (maxRows > 0 && rows > maxRows) {
+            log.warn("Aborting import after {} rows, the limit is {}", rows, maxRows);
+            throw new AppException(ErrorCode.IMPORT_TOO_MANY_ROWS);
+        }
+    }
+
+    /**
+     * Check the size of an upload and spool it to a temp file in the spool directory. A disk-backed upload is
+     * moved rather than copied.
+     *
+     * @param file Uploaded file
+     * @return Spooled file, to be deleted by the caller
+     * @throws IOException if the file cannot be written
+     */
+    public Path spool(MultipartFile file) throws IOException {
+        checkSize(file);
+        Files.createDirectories(spoolDir);
+        Path tempFile = Files.createTempFile(spoolDir, "excel-import-", ".tmp");
+        try {
+            file.transferTo(tempFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+}
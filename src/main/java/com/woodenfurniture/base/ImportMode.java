@@ -0,0 +1,17 @@
+package com.woodenfurniture.base;
+
+/**
+ * How imported rows are written
+ */
+public enum ImportMode {
+    /**
+     * Every row is a new entity, values of unique columns that already exist are rejected
+     */
+    INSERT,
+
+    /**
+     * Rows are matched on {@code code}, or on {@code uuid} if no code column is mapped. Matching rows are
+     * updated, the others inserted.
+     */
+    UPSERT
+}
@@ -0,0 +1,245 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.ColumnarChunk;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Staged import: one reader thread cuts the parsed rows into chunks, validator threads check
+ * chunks in parallel and the calling thread writes them back in file order. The reader stages converted
+ * cell values column-wise in off-heap {@link ColumnarChunk}s; entities only exist for the rows that pass the
+ * column checks, from validation until the chunk is written. A fixed pool of {@code maxInFlight} chunk
+ * buffers is allocated up front and recycled once a chunk is written, so a slow stage holds back the reader
+ * instead of letting rows pile up.
+ * The reader and validators run on the shared threads of the {@link ImportPipelineExecutor}.
+ *
+ * @param <T> Entity type
+ */
+@Slf4j
+final class ImportPipeline<T> {
+
+    private final int chunkSize;
+    private final int validators;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final BlockingQueue<ColumnarChunk> buffers;
+    private final BlockingQueue<Chunk<T>> read;
+    private final BlockingQueue<Chunk<T>> validated;
+    private volatile int totalChunks = -1;
+
+    /**
+     * @param executor Runs the reader and the validators, must have {@code validators + 1} threads to spare
+     */
+    ImportPipeline(int chunkSize, int validators, int columns, ExecutorService executor) {
+        this.chunkSize = chunkSize;
+        this.validators = validators;
+        this.executor = executor;
+        this.maxInFlight = validators * 2;
+        this.buffers = new ArrayBlockingQueue<>(maxInFlight);
+        for (int i = 0; i < maxInFlight; i++) {
+            buffers.add(new ColumnarChunk(chunkSize, columns));
+        }
+        // Room for every in-flight chunk plus one end marker per validator
+        this.read = new ArrayBlockingQueue<>(maxInFlight + validators);
+        this.validated = new ArrayBlockingQueue<>(maxInFlight);
+    }
+
+    /**
+     * Run the import, returning once the last chunk has been written
+     *
+     * @param source    Row value source, called on the reader thread
+     * @param validator Chunk validation, called concurrently on the validator threads
+     * @param sink      Chunk writer, called on the calling thread in file order
+     * @throws Exception the first failure of any stage
+     */
+    void run(Source source, Validator<T> validator, Sink<T> sink) throws Exception {
+        List<Future<?>> tasks = new ArrayList<>(validators + 1);
+        try {
+            tasks.add(executor.submit(() -> readChunks(source)));
+            for (int i = 0; i < validators; i++) {
+                tasks.add(executor.submit(() -> validateChunks(validator)));
+            }
+            writeChunks(sink);
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // The threads are shared, interrupt only the stages of this import
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof Exception) {
+            throw (Exception) cause;
+        } else if (cause != null) {
+            throw new IllegalStateException("Import failed", cause);
+        }
+    }
+
+    private void readChunks(Source source) {
+        try {
+            int[] sequence = {0};
+            ColumnarChunk[] current = {null};
+
+            source.read((values, rowIndex) -> {
+                if (current[0] == null) {
+                    current[0] = takeBuffer();
+                }
+                current[0].add(rowIndex, values);
+                if (current[0].isFull()) {
+                    enqueue(new Chunk<>(sequence[0]++, current[0]));
+                    current[0] = null;
+                }
+            });
+            if (current[0] != null) {
+                enqueue(new Chunk<>(sequence[0]++, current[0]));
+            }
+
+            totalChunks = sequence[0];
+            for (int i = 0; i < validators; i++) {
+                read.put(Chunk.end());
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private ColumnarChunk takeBuffer() {
+        try {
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import cancelled");
+        }
+    }
+
+    private void enqueue(Chunk<T> chunk) {
+        try {
+            read.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import cancelled");
+        }
+    }
+
+    private void validateChunks(Validator<T> validator) {
+        try {
+            while (true) {
+                Chunk<T> chunk = read.take();
+                if (chunk.isEnd()) {
+                    return;
+                }
+                chunk.errors = new String[chunk.cells.size()];
+                chunk.rows = validator.validate(chunk.cells, chunk.errors);
+                validated.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void writeChunks(Sink<T> sink) throws Exception {
+        // Chunks finish validation out of order, hold them back until their predecessors are written
+        Map<Integer, Chunk<T>> pending = new HashMap<>();
+        int next = 0;
+
+        while (totalChunks < 0 || next < totalChunks) {
+            if (failure.get() != null) {
+                return;
+            }
+            Chunk<T> chunk = validated.poll(100, TimeUnit.MILLISECONDS);
+            if (chunk == null) {
+                continue;
+            }
+            pending.put(chunk.sequence, chunk);
+
+            while ((chunk = pending.remove(next)) != null) {
+                sink.write(chunk.rows, chunk.cells, chunk.errors);
+                next++;
+                chunk.cells.clear();
+                buffers.add(chunk.cells);
+            }
+        }
+        log.debug("Import pipeline wrote {} chunks of up to {} rows with {} validators (max {} in flight)",
+                next, chunkSize, validators, maxInFlight);
+    }
+
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            log.error("Import pipeline stage failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Produces the parsed rows of the upload as field values in mapping order, already converted to the
+     * field types. The value array may be reused between rows, it is copied into the chunk.
+     */
+    @FunctionalInterface
+    interface Source {
+        void read(ObjIntConsumer<Object[]> rowConsumer) throws Exception;
+    }
+
+    /**
+     * Validates one chunk
+     */
+    @FunctionalInterface
+    interface Validator<T> {
+
+        /**
+         * @param cells  Staged cell values of the chunk
+         * @param errors Receives the error message per row, left null for valid rows
+         * @return Entities materialized from the chunk by row, null for rows rejected before materializing
+         */
+        List<T> validate(ColumnarChunk cells, String[] errors);
+    }
+
+    /**
+     * Persists and reports one validated chunk
+     */
+    @FunctionalInterface
+    interface Sink<T> {
+
+        /**
+         * @param rows   Entities of the chunk by row, null for rows rejected before materializing
+         * @param cells  Staged cell values of the chunk, with the sheet row index (0-based) per row. Only valid
+         *               during the call, the buffer is reused afterwards.
+         * @param errors Error message per row, null for valid rows. May be amended by the sink.
+         */
+        void write(List<T> rows, ColumnarChunk cells, String[] errors) throws Exception;
+    }
+
+    private static final class Chunk<T> {
+        private final int sequence;
+        private final ColumnarChunk cells;
+        private List<T> rows;
+        private String[] errors;
+
+        private Chunk(int sequence, ColumnarChunk cells) {
+            this.sequence = sequence;
+            this.cells = cells;
+        }
+
+        private static <T> Chunk<T> end() {
+            return new Chunk<>(-1, null);
+        }
+
+        private boolean isEnd() {
+            return sequence < 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared threads of the {@link ImportPipeline}s. At most {@code maxConcurrent} imports run at the same time,
+ * each with one reader and {@code validators} validator threads, and the pool holds exactly enough threads for
+ * all of them, so neither threads nor chunk buffers grow with the number of uploads. An import waits up to
+ * {@code permitTimeout} for a slot before it is rejected.
+ */
+@Slf4j
+@Component
+public class ImportPipelineExecutor {
+
+    private final int validators;
+    private final Semaphore permits;
+    private final Duration permitTimeout;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ImportPipelineExecutor(
+            @Value("${import.pipeline.validators:0}") int validators,
+            @Value("${import.pipeline.max-concurrent:2}") int maxConcurrent,
+            @Value("${import.pipeline.permit-timeout:30s}") Duration permitTimeout) {
+        // Leave a core for the reader and the writer
+        this.validators = validators > 0 ? validators : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int imports = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(imports, true);
+        this.permitTimeout = permitTimeout;
+
+        int poolSize = imports * (this.validators + 1);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "import-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Run an import pipeline once a slot is free, returning once the last chunk has been written
+     *
+     * @param chunkSize Rows per chunk
+     * @param columns   Mapped columns per row
+     * @param source    Row value source
+     * @param validator Chunk validation
+     * @param sink      Chunk writer, called on the calling thread in file order
+     * @param <T>       Entity type
+     * @throws Exception the first failure of any stage
+     */
+    <T> void run(int chunkSize, int columns, ImportPipeline.Source source, ImportPipeline.Validator<T> validator,
+                 ImportPipeline.Sink<T> sink) throws Exception {
+        if (!permits.tryAcquire(permitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Rejecting import, no import slot became free within {}", permitTimeout);
+            throw new AppException(ErrorCode.IMPORT_BUSY);
+        }
+        try {
+            new ImportPipeline<T>(chunkSize, validators, columns, executor).run(source, validator, sink);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,172 @@
+package com.woodenfurniture.base;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.DirectFieldAccessFallbackBeanWrapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Opaque continuation token of a keyset page: the sort key of the last row of a page, with {@code id} as
+ * tie-breaker, as base64url JSON. The token also carries the sort it was taken from, so that it is rejected
+ * under another sort instead of skipping or repeating rows. Values are kept as strings and converted back to
+ * the attribute types when the seek predicate is built.
+ */
+final class KeysetCursor {
+
+    private static final String ID = "id";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Append {@code id} to a sort, unless it is sorted on already, so that every row has a distinct key
+     *
+     * @param sort Requested sort, may be unsorted
+     * @return Sort with the tie-breaker
+     */
+    static Sort withTieBreaker(Sort sort) {
+        Sort keyset = sort != null ? sort : Sort.unsorted();
+        return keyset.getOrderFor(ID) != null ? keyset : keyset.and(Sort.by(Sort.Direction.ASC, ID));
+    }
+
+    /**
+     * Encode the sort key of an entity
+     *
+     * @param keyset Sort with tie-breaker
+     * @param entity Last entity of a page
+     * @return Token
+     */
+    static String encode(Sort keyset, Object entity) {
+        DirectFieldAccessFallbackBeanWrapper wrapper = new DirectFieldAccessFallbackBeanWrapper(entity);
+        List<String> values = new ArrayList<>();
+        for (Sort.Order order : keyset) {
+            Object value = wrapper.getPropertyValue(order.getProperty());
+            values.add(value == null ? null : value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+        }
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(new Token(signature(keyset), values));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode page cursor", e);
+        }
+    }
+
+    /**
+     * Decode a token taken under the same sort
+     *
+     * @param token  Token
+     * @param keyset Sort with tie-breaker
+     * @return Sort key values as strings, one per order of the sort
+     */
+    static String[] decode(String token, Sort keyset) {
+        Token decoded;
+        try {
+            decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII)), Token.class);
+        } catch (Exception e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        List<String> values = decoded.values;
+        if (!Objects.equals(decoded.sort, signature(keyset)) || values == null || values.size() != keyset.toList().size()) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Convert a sort key value back to the type of its attribute
+     *
+     * @param value Value as encoded
+     * @param type  Attribute type
+     * @return Typed value, null for null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(String value, Class<?> type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (type == String.class) {
+                return value;
+            } else if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            } else if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            } else if (type == Short.class || type == short.class) {
+                return Short.valueOf(value);
+            } else if (type == Double.class || type == double.class) {
+                return Double.valueOf(value);
+            } else if (type == Float.class || type == float.class) {
+                return Float.valueOf(value);
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(value);
+            } else if (type == BigInteger.class) {
+                return new BigInteger(value);
+            } else if (type == Boolean.class || type == boolean.class) {
+                return Boolean.valueOf(value);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(value);
+            } else if (type == LocalTime.class) {
+                return LocalTime.parse(value);
+            } else if (type == Instant.class) {
+                return Instant.parse(value);
+            } else if (type == OffsetDateTime.class) {
+                return OffsetDateTime.parse(value);
+            } else if (type == ZonedDateTime.class) {
+                return ZonedDateTime.parse(value);
+            } else if (type == UUID.class) {
+                return UUID.fromString(value);
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, value);
+            }
+        } catch (RuntimeException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        // Not a type a keyset can be sorted on
+        throw new AppException(ErrorCode.INVALID_SORT_PROPERTY);
+    }
+
+    private static String signature(Sort keyset) {
+        StringBuilder signature = new StringBuilder();
+        for (Sort.Order order : keyset) {
+            if (signature.length() > 0) {
+                signature.append(',');
+            }
+            signature.append(order.getProperty()).append(order.isAscending() ? ":asc" : ":desc");
+        }
+        return signature.toString();
+    }
+
+    private static final class Token {
+        public String sort;
+        public List<String> values;
+
+        @SuppressWarnings("unused")
+        Token() {
+        }
+
+        Token(String sort, List<String> values) {
+            this.sort = sort;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.SheetWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Exports the id range of a query as N partitions fetched in parallel, each through its own cursor on its own
+ * connection of the {@link ExportSessions}, and merges them in id order into one sheet writer. The first
+ * partition streams straight to the writer; the others spool their rows to temp files until the writer reaches
+ * them, so every partition fetches at full speed while memory stays bounded. A shared connection budget caps the
+ * connections held by all parallel exports together so that they cannot starve the other exports.
+ */
+@Slf4j
+@Component
+public class ParallelExporter {
+
+    private static final String ID = "id";
+    private static final Object[] END = new Object[0];
+    private static final int SPOOL_BUFFER_SIZE = 64 * 1024;
+    private static final AtomicInteger EXPORT_COUNT = new AtomicInteger();
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ExportSessions exportSessions;
+    private final Semaphore connectionBudget;
+
+    @Autowired
+    public ParallelExporter(
+            EntityManagerFactory entityManagerFactory,
+            ExportSessions exportSessions,
+            @Value("${export.parallel.connection-budget:4}") int connectionBudget) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.exportSessions = exportSessions;
+        this.connectionBudget = new Semaphore(Math.max(1, connectionBudget), true);
+    }
+
+    /**
+     * Export in id order through parallel partitions
+     *
+     * @param projection  Column projection
+     * @param entityClass Entity class
+     * @param filter      Filter on the entity
+     * @param partitions  Number of id ranges
+     * @param fetchSize   JDBC fetch size per partition
+     * @param writer      Target sheet writer
+     * @param <T>         Entity type
+     * @throws Exception the first failure of any partition
+     */
+    <T> void export(
+            ExportProjection<T> projection,
+            Class<T> entityClass,
+            Specification<T> filter,
+            int partitions,
+            int fetchSize,
+            SheetWriter writer) throws Exception {
+        long[] range = idRange(entityClass, filter);
+        if (range == null) {
+            return;
+        }
+        long span = range[1] - range[0] + 1;
+        int count = (int) Math.min(partitions, span);
+        long step = (span + count - 1) / count;
+
+        int exportId = EXPORT_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "export-" + exportId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Object[]> head = new ArrayBlockingQueue<>(fetchSize);
+        Queue<Path> spools = new ConcurrentLinkedQueue<>();
+
+        try {
+            List<Future<Path>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long from = range[0] + i * step;
+                long to = i == count - 1 ? range[1] + 1 : from + step;
+                boolean first = i == 0;
+                futures.add(executor.submit(() -> fetchPartition(projection, filter, from, to, fetchSize,
+                        first ? head : null, spools)));
+            }
+
+            // The first partition streams through the queue, the others are replayed from their spool in order
+            Future<Path> firstPartition = futures.get(0);
+            while (true) {
+                Object[] row = head.poll(100, TimeUnit.MILLISECONDS);
+                if (row == END) {
+                    break;
+                }
+                if (row != null) {
+                    writer.writeRow(row);
+                } else if (firstPartition.isDone()) {
+                    awaitPartition(firstPartition);
+                }
+            }
+            for (int i = 1; i < count; i++) {
+                replay(awaitPartition(futures.get(i)), writer);
+            }
+            log.debug("Exported {} partitions of {} with a budget of {} free connections",
+                    count, entityClass.getSimpleName(), connectionBudget.availablePermits());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            for (Path spool : spools) {
+                Files.deleteIfExists(spool);
+            }
+        }
+    }
+
+    private <T> Path fetchPartition(
+            ExportProjection<T> projection,
+            Specification<T> filter,
+            long from,
+            long to,
+            int fetchSize,
+            BlockingQueue<Object[]> head,
+            Queue<Path> spools) throws Exception {
+        connectionBudget.acquire();
+        try (ExportSessions.ExportSession session = exportSessions.open()) {
+            EntityManager entityManager = session.getEntityManager();
+            entityManager.getTransaction().begin();
+
+            Specification<T> partitionFilter = filter.and((root, query, criteriaBuilder) -> criteriaBuilder.and(
+                    criteriaBuilder.ge(root.get(ID), from),
+                    criteriaBuilder.lt(root.get(ID), to)));
+            try (var rows = projection.createQuery(entityManager, partitionFilter, Sort.by(ID), fetchSize).getResultStream()) {
+                if (head != null) {
+                    projection.read(entityManager, rows, fetchSize, row -> put(head, row));
+                    put(head, END);
+                    return null;
+                }
+                return spool(projection, entityManager, rows, fetchSize, spools);
+            } finally {
+                // Read-only, nothing to commit
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+            }
+        } finally {
+            connectionBudget.release();
+        }
+    }
+
+    private <T> Path spool(
+            ExportProjection<T> projection,
+            EntityManager entityManager,
+            Stream<Tuple> rows,
+            int fetchSize,
+            Queue<Path> spools) throws IOException {
+        Path spool = Files.createTempFile("export-partition-", ".tmp");
+        spools.add(spool);
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(spool), SPOOL_BUFFER_SIZE))) {
+            int[] written = {0};
+            projection.read(entityManager, rows, fetchSize, row -> {
+                try {
+                    out.writeUnshared(row);
+                    // Drop back-references so the stream does not keep every row reachable
+                    if (++written[0] % fetchSize == 0) {
+                        out.reset();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeObject(null);
+        }
+        return spool;
+    }
+
+    private static void replay(Path spool, SheetWriter writer) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(spool), SPOOL_BUFFER_SIZE))) {
+            Object row;
+            while ((row = in.readObject()) != null) {
+                writer.writeRow((Object[]) row);
+            }
+        }
+        Files.deleteIfExists(spool);
+    }
+
+    private <T> long[] idRange(Class<T> entityClass, Specification<T> filter) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+            Root<T> root = query.from(entityClass);
+            query.multiselect(criteriaBuilder.min(root.<Long>get(ID)), criteriaBuilder.max(root.<Long>get(ID)));
+            Predicate predicate = filter.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+            Object[] result = entityManager.createQuery(query).getSingleResult();
+            return result[0] == null ? null : new long[]{(Long) result[0], (Long) result[1]};
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static Path awaitPartition(Future<Path> partition) throws Exception {
+        try {
+            return partition.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static void put(BlockingQueue<Object[]> queue, Object[] row) {
+        try {
+            queue.put(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Export cancelled");
+        }
+    }
+}
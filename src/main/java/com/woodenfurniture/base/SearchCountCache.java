@@ -0,0 +1,166 @@
+package com.woodenfurniture.base;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of search totals, keyed by entity and the normalized search criteria, so that a list
+ * view asking for a total does not run {@code COUNT(*)} on every page. A total is counted in the request on
+ * the first ask; once older than the TTL it is still served while one background refresh recounts it, so
+ * totals are approximate by up to about one TTL.
+ */
+@Slf4j
+@Component
+public class SearchCountCache {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refresher;
+
+    @Autowired
+    public SearchCountCache(
+            @Value("${search.count-cache.ttl:30s}") Duration ttl,
+            @Value("${search.count-cache.max-entries:10000}") int maxEntries,
+            @Value("${search.count-cache.refresh-threads:2}") int refreshThreads) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, refreshThreads);
+        // Refreshes beyond the queue are dropped, the stale total is served until a later request retries
+        this.refresher = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxEntries > 0 ? Math.min(maxEntries, 1000) : 1000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-count-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Get the total of a search, counting it now if it is not cached and in the background if it is stale
+     *
+     * @param entityClass   Searched entity class
+     * @param searchRequest Search request, null for all rows
+     * @param counter       Runs the count query, may be called on a background thread
+     * @return Total, possibly up to about one TTL old
+     */
+    public long getTotal(Class<?> entityClass, BaseSearchRequest searchRequest, LongSupplier counter) {
+        Key key = new Key(entityClass, normalize(searchRequest));
+        long now = System.nanoTime();
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            long total = counter.getAsLong();
+            evictIfFull(now);
+            entries.put(key, new Entry(total, now));
+            return total;
+        }
+        if (now - entry.countedAt > ttlNanos && entry.refreshing.compareAndSet(false, true)) {
+            refresh(key, entry, counter);
+        }
+        return entry.total;
+    }
+
+    /**
+     * Drop the cached totals of an entity, such as after a bulk import
+     *
+     * @param entityClass Entity class
+     */
+    public void invalidate(Class<?> entityClass) {
+        entries.keySet().removeIf(key -> key.entityClass == entityClass);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh(Key key, Entry stale, LongSupplier counter) {
+        try {
+            refresher.execute(() -> {
+                try {
+                    entries.replace(key, stale, new Entry(counter.getAsLong(), System.nanoTime()));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refresh the {} search total: {}", key.entityClass.getSimpleName(), e.getMessage());
+                } finally {
+                    stale.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stale.refreshing.set(false);
+        }
+    }
+
+    private void evictIfFull(long now) {
+        if (maxEntries <= 0 || entries.size() < maxEntries) {
+            return;
+        }
+        entries.values().removeIf(entry -> now - entry.countedAt > ttlNanos);
+        if (entries.size() >= maxEntries) {
+            // Everything is fresh, start over rather than track recency on every read
+            entries.clear();
+        }
+    }
+
+    /**
+     * Criteria are combined with AND, so their order does not change the result and is normalized away
+     */
+    static String normalize(BaseSearchRequest searchRequest) {
+        if (searchRequest == null) {
+            return "";
+        }
+        List<String> terms = new ArrayList<>();
+        if (searchRequest.getCriteria() != null) {
+            for (BaseSearchRequest.SearchCriteria criterion : searchRequest.getCriteria()) {
+                if (criterion == null || criterion.getProperty() == null || criterion.getOperator() == null) {
+                    continue;
+                }
+                terms.add(criterion.getProperty() + SEPARATOR + criterion.getOperator() + SEPARATOR
+                        + criterion.getType() + SEPARATOR + Objects.toString(criterion.getValue(), ""));
+            }
+        }
+        Collections.sort(terms);
+        terms.add(0, Boolean.TRUE.equals(searchRequest.getIncludeDeleted()) ? "all" : "active");
+        return String.join(String.valueOf(SEPARATOR) + SEPARATOR, terms);
+    }
+
+    @lombok.Value
+    private static class Key {
+        Class<?> entityClass;
+        String criteria;
+    }
+
+    private static final class Entry {
+        private final long total;
+        private final long countedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(long total, long countedAt) {
+            this.total = total;
+            this.countedAt = countedAt;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.woodenfurniture.base;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.util.DirectFieldAccessFallbackBeanWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Trigram indexes of the text properties that services opt in with
+ * {@link BaseServiceImpl#getIndexedSearchProperties()}, so that a LIKE search on them reads the rows of its
+ * candidate ids by primary key instead of scanning the table. An index is built when the application is
+ * ready, on a background thread, and is updated row by row once the transaction that saved a row commits,
+ * chunk by chunk for imports. Searches fall back to the plain LIKE while an index is being built.
+ * <p>
+ * A search restricted to candidate ids misses every row the index does not know, and the index only learns
+ * of the writes made through this instance. It is therefore off by default ({@code search.trigram.enabled})
+ * and must only be enabled for a single-instance deployment where this node makes all writes to the indexed
+ * tables; with several instances, or rows written by other programs, searches would miss rows.
+ */
+@Slf4j
+@Component
+public class SearchIndex {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<Class<?>, Registration> registrations = new ConcurrentHashMap<>();
+    private final ExecutorService rebuilder;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public SearchIndex(
+            @Value("${search.trigram.enabled:false}") boolean enabled,
+            @Value("${search.trigram.max-candidates:10000}") int maxCandidates,
+            PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Index text properties of an entity. Nothing is indexed while the index is disabled.
+     *
+     * @param entityClass Entity class
+     * @param properties  String properties searched with LIKE
+     */
+    public void register(Class<?> entityClass, List<String> properties) {
+        if (enabled && properties != null && !properties.isEmpty()) {
+            registrations.put(entityClass, new Registration(properties.toArray(new String[0])));
+        }
+    }
+
+    /**
+     * Find the rows that may match the LIKE criteria of a search on indexed properties
+     *
+     * @param entityClass   Searched entity class
+     * @param searchRequest Search request
+     * @return Candidate ids, or null if the index cannot narrow the search
+     */
+    public List<Object> candidates(Class<?> entityClass, BaseSearchRequest searchRequest) {
+        Registration registration = registrations.get(entityClass);
+        if (registration == null) {
+            return null;
+        }
+        long[] ids = null;
+        for (BaseSearchRequest.SearchCriteria criterion : SearchPlan.criteria(searchRequest)) {
+            int property = registration.indexOf(criterion.getProperty());
+            if (criterion.getOperator() != BaseSearchRequest.SearchOperator.LIKE || property < 0) {
+                continue;
+            }
+            long[] matches = registration.index.candidates(property, criterion.getValue(), maxCandidates);
+            if (matches != null) {
+                ids = ids == null ? matches : intersect(ids, matches);
+            }
+        }
+        if (ids == null) {
+            return null;
+        }
+        List<Object> candidates = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            candidates.add(id);
+        }
+        return candidates;
+    }
+
+    /**
+     * Index the current values of a saved entity, once its transaction commits
+     *
+     * @param entityClass Entity class
+     * @param entity      Saved entity
+     */
+    public void put(Class<?> entityClass, BaseEntity entity) {
+        Registration registration = registrations.get(entityClass);
+        if (registration == null || entity.getId() == null) {
+            return;
+        }
+        long id = entity.getId();
+        DirectFieldAccessFallbackBeanWrapper wrapper = new DirectFieldAccessFallbackBeanWrapper(entity);
+        Object[] values = new Object[registration.properties.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = wrapper.getPropertyValue(registration.properties[i]);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registration.index.put(id, values);
+                }
+            });
+        } else {
+            registration.index.put(id, values);
+        }
+    }
+
+    /**
+     * Index the stored values of rows whose entities do not hold all of them, such as upserted rows that
+     * kept some of their columns. Reads the rows, so call it once their transaction has committed.
+     *
+     * @param entityClass Entity class
+     * @param ids         Ids of the rows
+     */
+    public void reload(Class<?> entityClass, Collection<Long> ids) {
+        Registration registration = registrations.get(entityClass);
+        if (registration == null || ids.isEmpty()) {
+            return;
+        }
+        String jpql = select(entityClass, registration) + " where e.id in :ids";
+        readOnlyTransaction.executeWithoutResult(status -> entityManager.createQuery(jpql, Object[].class)
+                .setParameter("ids", ids)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList()
+                .forEach(row -> registration.index.put((Long) row[0], Arrays.copyOfRange(row, 1, row.length))));
+    }
+
+    /**
+     * Rebuild the index of an entity in the background
+     *
+     * @param entityClass Entity class
+     */
+    public void rebuild(Class<?> entityClass) {
+        Registration registration = registrations.get(entityClass);
+        // A rebuild that has not started yet covers this one too
+        if (registration != null && registration.rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                registration.rebuildQueued.set(false);
+                load(entityClass, registration);
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuildAll() {
+        registrations.keySet().forEach(this::rebuild);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void load(Class<?> entityClass, Registration registration) {
+        long start = System.nanoTime();
+        String jpql = select(entityClass, registration);
+        TrigramIndex index = registration.index;
+        index.beginRebuild();
+        boolean complete = false;
+        try {
+            // Deleted rows stay indexed, searches can include them
+            long[] rows = new long[1];
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> stream = entityManager.createQuery(jpql, Object[].class)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+                    stream.forEach(row -> {
+                        index.load((Long) row[0], Arrays.copyOfRange(row, 1, row.length));
+                        rows[0]++;
+                    });
+                }
+            });
+            complete = true;
+            log.info("Built search index of {} over {} rows in {} ms", entityClass.getSimpleName(), rows[0],
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Failed to build search index of {}: {}", entityClass.getSimpleName(), e.getMessage(), e);
+        } finally {
+            index.endRebuild(complete);
+        }
+    }
+
+    private String select(Class<?> entityClass, Registration registration) {
+        return "select e.id, e." + String.join(", e.", registration.properties)
+                + " from " + entityManager.getMetamodel().entity(entityClass).getName() + " e";
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] ids = new long[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                ids[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    private static final class Registration {
+
+        private final String[] properties;
+        private final TrigramIndex index;
+        private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+        Registration(String[] properties) {
+            this.properties = properties;
+            this.index = new TrigramIndex(properties.length);
+        }
+
+        int indexOf(String property) {
+            for (int i = 0; i < properties.length; i++) {
+                if (properties[i].equals(property)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
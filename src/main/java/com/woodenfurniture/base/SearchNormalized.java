@@ -0,0 +1,23 @@
+package com.woodenfurniture.base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a String field as the normalized shadow of a text field: the text in lower case without
+ * diacritics, kept up to date on every write. Searches with EQUALS, NOT_EQUALS, IN, NOT_IN, LIKE, NOT_LIKE
+ * and STARTS_WITH on the text field run against the shadow, so they ignore case and diacritics and can use
+ * an index on the shadow column. They do so once {@link SearchTextBackfill} has filled the shadows of the
+ * rows written before the shadow existed.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SearchNormalized {
+
+    /**
+     * @return Name of the text field
+     */
+    String value();
+}
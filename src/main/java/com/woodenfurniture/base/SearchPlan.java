@@ -0,0 +1,497 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.ValueConverters;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Compiled form of one search shape: the entity, whether deleted rows are included and the property and
+ * operator of each criterion, in order. A shape compiles once into a JPQL condition with named parameters and
+ * a converter per parameter, so a search only converts and binds its values. Since the JPQL of a shape never
+ * changes, Hibernate reuses its query plan. IN lists are bound as one collection parameter padded to the
+ * next power of two with the last value, so that lists of similar length share one statement. A search
+ * narrowed by the {@link SearchIndex} binds its candidate ids the same way. Text matches on a property with
+ * a {@link SearchNormalized} shadow are rewritten to the shadow, once the shadows of the entity are filled.
+ * Safe for use from several threads.
+ *
+ * @param <T> Entity type
+ */
+@Slf4j
+final class SearchPlan<T> {
+
+    static final String ALIAS = "e";
+    // Shapes come from clients, start over rather than grow without bound
+    private static final int MAX_PLANS = 1000;
+
+    private static final Map<Shape, SearchPlan<?>> PLANS = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private final Class<T> entityClass;
+    private final boolean includeDeleted;
+    private final boolean idRestricted;
+    private final Term[] terms;
+    private final String[] parameterNames;
+    private final String select;
+    private final String count;
+
+    private SearchPlan(Metamodel metamodel, Class<T> entityClass, Shape shape) {
+        EntityType<T> entityType = metamodel.entity(entityClass);
+        this.entityClass = entityClass;
+        this.includeDeleted = shape.isIncludeDeleted();
+        this.idRestricted = shape.isIdRestricted();
+        this.terms = new Term[shape.getProperties().size()];
+
+        List<String> conditions = new ArrayList<>(terms.length + 1);
+        if (!includeDeleted) {
+            conditions.add(ALIAS + ".isDeleted = false");
+        }
+        int parameters = 0;
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = new Term(entityType, shape.getProperties().get(i), shape.getOperators().get(i), parameters,
+                    shape.isShadowsReady());
+            conditions.add(terms[i].jpql);
+            parameters += terms[i].arity();
+        }
+        if (idRestricted) {
+            conditions.add(ALIAS + ".id in :p" + parameters++);
+        }
+
+        this.parameterNames = new String[parameters];
+        for (int i = 0; i < parameters; i++) {
+            parameterNames[i] = "p" + i;
+        }
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        this.select = "select " + ALIAS + " from " + entityType.getName() + " " + ALIAS + where;
+        this.count = "select count(" + ALIAS + ") from " + entityType.getName() + " " + ALIAS + where;
+    }
+
+    /**
+     * Get the plan for the shape of a search request, compiling it on first use
+     *
+     * @param metamodel     JPA metamodel
+     * @param entityClass   Entity class
+     * @param searchRequest Search request, null for all rows that are not deleted
+     * @param idRestricted  Whether the rows are restricted to candidate ids
+     * @param shadowsReady  Whether every row has its {@link SearchNormalized} shadows filled, so that text
+     *                      matches may be rewritten to them
+     * @param <T>           Entity type
+     * @return Compiled plan
+     */
+    @SuppressWarnings("unchecked")
+    static <T> SearchPlan<T> of(Metamodel metamodel, Class<T> entityClass, BaseSearchRequest searchRequest,
+                                boolean idRestricted, boolean shadowsReady) {
+        List<BaseSearchRequest.SearchCriteria> criteria = criteria(searchRequest);
+        List<String> properties = new ArrayList<>(criteria.size());
+        List<BaseSearchRequest.SearchOperator> operators = new ArrayList<>(criteria.size());
+        for (BaseSearchRequest.SearchCriteria criterion : criteria) {
+            properties.add(criterion.getProperty());
+            operators.add(criterion.getOperator());
+        }
+        Shape shape = new Shape(entityClass, includeDeleted(searchRequest), idRestricted, shadowsReady, properties,
+                operators);
+
+        SearchPlan<?> plan = PLANS.get(shape);
+        if (plan != null) {
+            HITS.increment();
+            return (SearchPlan<T>) plan;
+        }
+        MISSES.increment();
+        // Compiling the same shape twice in a race is harmless, the last one is kept
+        SearchPlan<T> compiled = new SearchPlan<>(metamodel, entityClass, shape);
+        if (PLANS.size() >= MAX_PLANS) {
+            PLANS.clear();
+        }
+        PLANS.put(shape, compiled);
+        if (log.isDebugEnabled()) {
+            log.debug("Compiled search plan [{}]: {}", compiled.select, getMetrics());
+        }
+        return compiled;
+    }
+
+    /**
+     * @return Current metrics of the plan cache
+     */
+    static Metrics getMetrics() {
+        long hits = HITS.sum();
+        long misses = MISSES.sum();
+        return new Metrics(hits, misses, PLANS.size(), hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    }
+
+    /**
+     * Convert the values of a search request of this shape
+     *
+     * @param searchRequest Search request
+     * @param ids           Candidate ids, used when the plan is restricted to them
+     * @return Parameter values in parameter order
+     */
+    Object[] bind(BaseSearchRequest searchRequest, List<Object> ids) {
+        List<BaseSearchRequest.SearchCriteria> criteria = criteria(searchRequest);
+        Object[] values = new Object[parameterNames.length];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i].bind(criteria.get(i).getValue(), values);
+        }
+        if (idRestricted) {
+            values[values.length - 1] = pad(ids);
+        }
+        return values;
+    }
+
+    /**
+     * Create the query for the rows of a search
+     *
+     * @param entityManager Entity manager
+     * @param sort          Sort with checked properties, may be unsorted
+     * @param values        Values from {@link #bind(BaseSearchRequest, List)}
+     * @return Query with bound parameters
+     */
+    TypedQuery<T> createQuery(EntityManager entityManager, Sort sort, Object[] values) {
+        String jpql = sort == null || sort.isUnsorted() ? select : QueryUtils.applySorting(select, sort, ALIAS);
+        return setParameters(entityManager.createQuery(jpql, entityClass), values);
+    }
+
+    /**
+     * Create the query for the total of a search
+     *
+     * @param entityManager Entity manager
+     * @param values        Values from {@link #bind(BaseSearchRequest, List)}
+     * @return Count query with bound parameters
+     */
+    TypedQuery<Long> createCountQuery(EntityManager entityManager, Object[] values) {
+        return setParameters(entityManager.createQuery(count, Long.class), values);
+    }
+
+    /**
+     * The plan as a specification, for the queries built with the Criteria API
+     *
+     * @param values Values from {@link #bind(BaseSearchRequest, List)}
+     * @return Specification
+     */
+    Specification<T> toSpecification(Object[] values) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>(terms.length + 1);
+            if (!includeDeleted) {
+                predicates.add(criteriaBuilder.isFalse(root.get("isDeleted")));
+            }
+            for (Term term : terms) {
+                predicates.add(term.toPredicate(root, criteriaBuilder, values));
+            }
+            if (idRestricted) {
+                predicates.add(root.get("id").in((Collection<?>) values[values.length - 1]));
+            }
+            return predicates.isEmpty() ? null : criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private <Q extends TypedQuery<?>> Q setParameters(Q query, Object[] values) {
+        for (int i = 0; i < parameterNames.length; i++) {
+            query.setParameter(parameterNames[i], values[i]);
+        }
+        return query;
+    }
+
+    /**
+     * The criteria that take part in a search: complete, and with a value unless they are null checks
+     */
+    static List<BaseSearchRequest.SearchCriteria> criteria(BaseSearchRequest searchRequest) {
+        if (searchRequest == null || searchRequest.getCriteria() == null) {
+            return List.of();
+        }
+        List<BaseSearchRequest.SearchCriteria> criteria = new ArrayList<>(searchRequest.getCriteria().size());
+        for (BaseSearchRequest.SearchCriteria criterion : searchRequest.getCriteria()) {
+            if (criterion == null || criterion.getProperty() == null || criterion.getOperator() == null) {
+                continue;
+            }
+            boolean hasValue = criterion.getValue() != null && !criterion.getValue().isEmpty();
+            if (hasValue || isNullCheck(criterion.getOperator())) {
+                criteria.add(criterion);
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Pad a list to the next power of two with its last value, which leaves an IN condition unchanged
+     */
+    private static List<Object> pad(List<Object> values) {
+        int padded = Integer.highestOneBit(values.size());
+        if (padded < values.size()) {
+            padded <<= 1;
+        }
+        if (!values.isEmpty()) {
+            Object last = values.get(values.size() - 1);
+            while (values.size() < padded) {
+                values.add(last);
+            }
+        }
+        return values;
+    }
+
+    private static boolean includeDeleted(BaseSearchRequest searchRequest) {
+        return searchRequest != null && Boolean.TRUE.equals(searchRequest.getIncludeDeleted());
+    }
+
+    /**
+     * Operators that compare text, which a {@link SearchNormalized} shadow answers
+     */
+    private static boolean isTextMatch(BaseSearchRequest.SearchOperator operator) {
+        switch (operator) {
+            case EQUALS:
+            case NOT_EQUALS:
+            case IN:
+            case NOT_IN:
+            case LIKE:
+            case NOT_LIKE:
+            case STARTS_WITH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNullCheck(BaseSearchRequest.SearchOperator operator) {
+        return operator == BaseSearchRequest.SearchOperator.IS_NULL
+                || operator == BaseSearchRequest.SearchOperator.IS_NOT_NULL;
+    }
+
+    /**
+     * One criterion, resolved against the entity: its JPQL condition and the converter of its values
+     */
+    private static final class Term {
+
+        private final String property;
+        private final BaseSearchRequest.SearchOperator operator;
+        private final Function<Object, Object> converter;
+        private final int parameter;
+        private final String jpql;
+
+        Term(EntityType<?> entityType, String property, BaseSearchRequest.SearchOperator operator, int parameter,
+             boolean shadowsReady) {
+            Attribute<?, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(property);
+            } catch (IllegalArgumentException e) {
+                throw new AppException(ErrorCode.INVALID_SEARCH_CRITERIA);
+            }
+            // Text with a normalized shadow is matched on the shadow, with normalized values
+            String shadow = shadowsReady && isTextMatch(operator)
+                    ? SearchText.shadowOf(entityType.getJavaType(), property)
+                    : null;
+            this.property = shadow != null ? shadow : property;
+            this.operator = operator;
+            this.parameter = parameter;
+            if (isNullCheck(operator)) {
+                this.converter = null;
+            } else if (shadow != null) {
+                this.converter = value -> SearchText.normalize(value.toString());
+            } else {
+                this.converter = converter(attribute, operator);
+            }
+            this.jpql = jpql();
+        }
+
+        int arity() {
+            if (isNullCheck(operator)) {
+                return 0;
+            }
+            return operator == BaseSearchRequest.SearchOperator.BETWEEN ? 2 : 1;
+        }
+
+        void bind(String value, Object[] values) {
+            switch (operator) {
+                case IS_NULL:
+                case IS_NOT_NULL:
+                    return;
+                case LIKE:
+                case NOT_LIKE:
+                    values[parameter] = "%" + convert(value) + "%";
+                    return;
+                case STARTS_WITH:
+                    values[parameter] = convert(value) + "%";
+                    return;
+                case IN:
+                case NOT_IN:
+                    values[parameter] = pad(convertAll(value.split(",")));
+                    return;
+                case BETWEEN:
+                    String[] bounds = value.split(",");
+                    if (bounds.length != 2) {
+                        throw new AppException(ErrorCode.INVALID_SEARCH_CRITERIA);
+                    }
+                    values[parameter] = convert(bounds[0]);
+                    values[parameter + 1] = convert(bounds[1]);
+                    return;
+                default:
+                    values[parameter] = convert(value);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Predicate toPredicate(Root<?> root, CriteriaBuilder criteriaBuilder, Object[] values) {
+            Path path = root.get(property);
+            Object value = arity() > 0 ? values[parameter] : null;
+            switch (operator) {
+                case EQUALS:
+                    return criteriaBuilder.equal(path, value);
+                case NOT_EQUALS:
+                    return criteriaBuilder.notEqual(path, value);
+                case GREATER_THAN:
+                    return criteriaBuilder.greaterThan(path, (Comparable) value);
+                case LESS_THAN:
+                    return criteriaBuilder.lessThan(path, (Comparable) value);
+                case GREATER_THAN_OR_EQUALS:
+                    return criteriaBuilder.greaterThanOrEqualTo(path, (Comparable) value);
+                case LESS_THAN_OR_EQUALS:
+                    return criteriaBuilder.lessThanOrEqualTo(path, (Comparable) value);
+                case LIKE:
+                    return criteriaBuilder.like(path, (String) value);
+                case NOT_LIKE:
+                    return criteriaBuilder.notLike(path, (String) value);
+                case STARTS_WITH:
+                    return criteriaBuilder.like(path, (String) value);
+                case IN:
+                    return path.in((Collection<?>) value);
+                case NOT_IN:
+                    return criteriaBuilder.not(path.in((Collection<?>) value));
+                case IS_NULL:
+                    return criteriaBuilder.isNull(path);
+                case IS_NOT_NULL:
+                    return criteriaBuilder.isNotNull(path);
+                case BETWEEN:
+                    return criteriaBuilder.between(path, (Comparable) value, (Comparable) values[parameter + 1]);
+                default:
+                    throw new IllegalStateException("Unsupported search operator " + operator);
+            }
+        }
+
+        private String jpql() {
+            String path = ALIAS + "." + property;
+            String value = ":p" + parameter;
+            switch (operator) {
+                case EQUALS:
+                    return path + " = " + value;
+                case NOT_EQUALS:
+                    return path + " <> " + value;
+                case GREATER_THAN:
+                    return path + " > " + value;
+                case LESS_THAN:
+                    return path + " < " + value;
+                case GREATER_THAN_OR_EQUALS:
+                    return path + " >= " + value;
+                case LESS_THAN_OR_EQUALS:
+                    return path + " <= " + value;
+                case LIKE:
+                    return path + " like " + value;
+                case NOT_LIKE:
+                    return path + " not like " + value;
+                case STARTS_WITH:
+                    // A prefix pattern can use an index on the column
+                    return path + " like " + value;
+                case IN:
+                    return path + " in " + value;
+                case NOT_IN:
+                    return path + " not in " + value;
+                case IS_NULL:
+                    return path + " is null";
+                case IS_NOT_NULL:
+                    return path + " is not null";
+                case BETWEEN:
+                    return path + " between " + value + " and :p" + (parameter + 1);
+                default:
+                    throw new IllegalStateException("Unsupported search operator " + operator);
+            }
+        }
+
+        private Object convert(String value) {
+            try {
+                return converter.apply(value);
+            } catch (RuntimeException e) {
+                log.debug("Invalid search value '{}' for {}: {}", value, property, e.getMessage());
+                throw new AppException(ErrorCode.INVALID_SEARCH_CRITERIA);
+            }
+        }
+
+        private List<Object> convertAll(String[] values) {
+            if (values.length == 0) {
+                throw new AppException(ErrorCode.INVALID_SEARCH_CRITERIA);
+            }
+            List<Object> converted = new ArrayList<>(values.length);
+            for (String value : values) {
+                converted.add(convert(value));
+            }
+            return converted;
+        }
+
+        /**
+         * Values are converted to the Java type of the attribute, LIKE and STARTS_WITH only apply to strings
+         */
+        private static Function<Object, Object> converter(Attribute<?, ?> attribute,
+                                                          BaseSearchRequest.SearchOperator operator) {
+            Class<?> type = attribute.getJavaType();
+            boolean like = operator == BaseSearchRequest.SearchOperator.LIKE
+                    || operator == BaseSearchRequest.SearchOperator.NOT_LIKE
+                    || operator == BaseSearchRequest.SearchOperator.STARTS_WITH;
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+                    || (like && type != String.class)) {
+                throw new AppException(ErrorCode.INVALID_SEARCH_CRITERIA);
+            }
+            if (type == LocalDateTime.class) {
+                // A date alone stands for the start of that day
+                return value -> value.toString().length() == 10
+                        ? LocalDate.parse(value.toString()).atStartOfDay()
+                        : LocalDateTime.parse(value.toString());
+            }
+            if (type == String.class || type == LocalDate.class || type == Boolean.class || type == boolean.class
+                    || type == Integer.class || type == int.class || type == Long.class || type == long.class
+                    || type == Double.class || type == double.class || type.isEnum()) {
+                return ValueConverters.forType(type, null);
+            }
+            throw new AppException(ErrorCode.INVALID_SEARCH_CRITERIA);
+        }
+    }
+
+    @Value
+    private static class Shape {
+        Class<?> entityClass;
+        boolean includeDeleted;
+        boolean idRestricted;
+        boolean shadowsReady;
+        List<String> properties;
+        List<BaseSearchRequest.SearchOperator> operators;
+    }
+
+    /**
+     * Snapshot of the plan cache metrics
+     */
+    @Value
+    static class Metrics {
+        long hits;
+        long misses;
+        int plans;
+        double hitRate;
+    }
+}
@@ -0,0 +1,34 @@
+package com.woodenfurniture.base;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * One page of a search without a count query. Whether a next page exists is known from fetching one row
+ * more than the page size.
+ *
+ * @param <T> Response type
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SearchSlice<T> {
+    List<T> content;
+    int page;
+    int size;
+    boolean hasNext;
+    /**
+     * Approximate number of matching rows from the count cache, only present when asked for
+     */
+    Long total;
+}
@@ -0,0 +1,137 @@
+package com.woodenfurniture.base;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization of searched text and the {@link SearchNormalized} shadow fields that hold it. Text is
+ * decomposed and stripped of its combining marks, so that Vietnamese "Nguyễn" becomes "nguyen"; "đ" has no
+ * decomposition and is mapped to "d" explicitly.
+ */
+@Slf4j
+public final class SearchText {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Map<Class<?>, List<Shadow>> SHADOWS = new ConcurrentHashMap<>();
+
+    private SearchText() {
+    }
+
+    /**
+     * Lower case without diacritics
+     *
+     * @param text Text
+     * @return Normalized text
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the shadow field of a text field
+     *
+     * @param entityClass Entity class
+     * @param property    Text field
+     * @return Name of the shadow field, or null if the field has none
+     */
+    public static String shadowOf(Class<?> entityClass, String property) {
+        for (Shadow shadow : shadows(entityClass)) {
+            if (shadow.source.getName().equals(property)) {
+                return shadow.field.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the shadow fields of an entity class
+     *
+     * @param entityClass Entity class
+     * @return Shadow field name by text field name, in declaration order
+     */
+    public static Map<String, String> shadowFields(Class<?> entityClass) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Shadow shadow : shadows(entityClass)) {
+            fields.put(shadow.source.getName(), shadow.field.getName());
+        }
+        return fields;
+    }
+
+    /**
+     * Set the shadow fields of an entity from their text fields
+     *
+     * @param entity Entity
+     */
+    public static void normalizeShadows(Object entity) {
+        for (Shadow shadow : shadows(entity.getClass())) {
+            try {
+                Object text = shadow.source.get(entity);
+                shadow.field.set(entity, text != null ? normalize(text.toString()) : null);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot normalize " + shadow.field.getName()
+                        + " of " + entity.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static List<Shadow> shadows(Class<?> entityClass) {
+        return SHADOWS.computeIfAbsent(entityClass, SearchText::findShadows);
+    }
+
+    private static List<Shadow> findShadows(Class<?> entityClass) {
+        List<Shadow> shadows = new ArrayList<>();
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                SearchNormalized annotation = field.getAnnotation(SearchNormalized.class);
+                if (annotation == null) {
+                    continue;
+                }
+                Field source = findField(entityClass, annotation.value());
+                if (source == null || source.getType() != String.class || field.getType() != String.class) {
+                    log.warn("Ignoring search shadow '{}' of {}: it and its text field must be Strings",
+                            field.getName(), entityClass.getSimpleName());
+                    continue;
+                }
+                field.setAccessible(true);
+                source.setAccessible(true);
+                shadows.add(new Shadow(source, field));
+            }
+        }
+        return shadows;
+    }
+
+    private static Field findField(Class<?> entityClass, String name) {
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                return type.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // Continue with the superclass
+            }
+        }
+        return null;
+    }
+
+    private static final class Shadow {
+
+        private final Field source;
+        private final Field field;
+
+        Shadow(Field source, Field field) {
+            this.source = source;
+            this.field = field;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.woodenfurniture.base;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fills the {@link SearchNormalized} shadow columns of rows written before the shadow existed, once the
+ * application is ready, on a background thread. Rows are read in id order and updated in JDBC batches of
+ * plain statements, so their version and audit columns do not move, and only while their text is still the
+ * text that was normalized.
+ * <p>
+ * Searches only run against the shadows of an entity once its backfill has completed, see
+ * {@link #isBackfilled(Class)}. Until then, and for good if the backfill fails, they keep using the text
+ * columns, which every row has.
+ */
+@Slf4j
+@Component
+public class SearchTextBackfill {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Class<?>> backfilled = ConcurrentHashMap.newKeySet();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public SearchTextBackfill(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param entityClass Entity class
+     * @return Whether every row of the entity has its shadow columns filled, so searches may use them
+     */
+    public boolean isBackfilled(Class<?> entityClass) {
+        return backfilled.contains(entityClass);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        Thread thread = new Thread(this::backfillAll, "search-text-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void backfillAll() {
+        for (EntityType<?> entityType : entityManager.getMetamodel().getEntities()) {
+            Map<String, String> shadows = SearchText.shadowFields(entityType.getJavaType());
+            if (shadows.isEmpty()) {
+                continue;
+            }
+            try {
+                AbstractEntityPersister persister = (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+                        .unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                        .getEntityDescriptor(entityType.getJavaType());
+                shadows.forEach((text, shadow) -> backfill(entityType.getName(), persister, text, shadow));
+                backfilled.add(entityType.getJavaType());
+            } catch (RuntimeException e) {
+                log.error("Failed to backfill the search shadows of {}, searches keep using the text columns: {}",
+                        entityType.getName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void backfill(String entityName, AbstractEntityPersister persister, String text, String shadow) {
+        String select = "select e.id, e." + text + " from " + entityName + " e"
+                + " where e.id > :after and e." + shadow + " is null and e." + text + " is not null order by e.id";
+        String update = "UPDATE " + persister.getTableName()
+                + " SET " + persister.getPropertyColumnNames(shadow)[0] + " = ?"
+                + " WHERE " + persister.getIdentifierColumnNames()[0] + " = ?"
+                + " AND " + persister.getPropertyColumnNames(text)[0] + " = ?";
+
+        long total = 0;
+        long[] after = {Long.MIN_VALUE};
+        int read;
+        do {
+            read = transactionTemplate.execute(status -> {
+                List<Object[]> rows = entityManager.createQuery(select, Object[].class)
+                        .setParameter("after", after[0])
+                        .setMaxResults(BATCH_SIZE)
+                        .getResultList();
+                if (rows.isEmpty()) {
+                    return 0;
+                }
+                // One batch per chunk of rows, sent in few round trips with rewriteBatchedStatements
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(update)) {
+                        for (Object[] row : rows) {
+                            statement.setString(1, SearchText.normalize(row[1].toString()));
+                            statement.setLong(2, (Long) row[0]);
+                            statement.setString(3, row[1].toString());
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                });
+                after[0] = (Long) rows.get(rows.size() - 1)[0];
+                return rows.size();
+            });
+            total += read;
+        } while (read == BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("Backfilled {} rows of {}.{}", total, entityName, shadow);
+        }
+    }
+}
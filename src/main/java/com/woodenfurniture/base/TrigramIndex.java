@@ -0,0 +1,270 @@
+package com.woodenfurniture.base;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index over some text properties of one entity, answering substring searches with the
+ * ids of the rows that may match. Every property keeps a posting list of ids per trigram of its text as
+ * normalized by {@link SearchText}, lower case without diacritics. A search intersects the posting lists
+ * of the trigrams of its pattern and checks the candidates against the indexed text, so the ids returned
+ * are a superset of the rows the database would match and the query keeps its LIKE condition.
+ * <p>
+ * The index is rebuilt in bulk and updated row by row in between. Updates made while a rebuild is loading
+ * win over the rows it loads. Safe for use from several threads.
+ */
+final class TrigramIndex {
+
+    private static final Pattern WILDCARDS = Pattern.compile("[%_]");
+    private static final long[] NO_IDS = new long[0];
+
+    private final int properties;
+    private final Map<Long, String[]> texts = new HashMap<>();
+    private final Map<Long, Postings>[] postings;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Set<Long> updatedDuringRebuild;
+    private volatile boolean ready;
+
+    /**
+     * @param properties Number of indexed properties
+     */
+    @SuppressWarnings("unchecked")
+    TrigramIndex(int properties) {
+        this.properties = properties;
+        this.postings = new Map[properties];
+        for (int i = 0; i < properties; i++) {
+            postings[i] = new HashMap<>();
+        }
+    }
+
+    /**
+     * Drop the index and start loading it again. Searches are not answered until {@link #endRebuild(boolean)}.
+     */
+    void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            texts.clear();
+            for (Map<Long, Postings> property : postings) {
+                property.clear();
+            }
+            updatedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load a row during a rebuild, unless it was updated since the rebuild began
+     *
+     * @param id     Row id
+     * @param values Property values in property order
+     */
+    void load(long id, Object[] values) {
+        lock.writeLock().lock();
+        try {
+            if (updatedDuringRebuild == null || !updatedDuringRebuild.contains(id)) {
+                index(id, values);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finish a rebuild
+     *
+     * @param complete Whether every row was loaded; an incomplete index is not used for searches
+     */
+    void endRebuild(boolean complete) {
+        lock.writeLock().lock();
+        try {
+            updatedDuringRebuild = null;
+            ready = complete;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index the current values of a row, replacing those indexed before
+     *
+     * @param id     Row id
+     * @param values Property values in property order
+     */
+    void put(long id, Object[] values) {
+        lock.writeLock().lock();
+        try {
+            if (updatedDuringRebuild != null) {
+                updatedDuringRebuild.add(id);
+            }
+            index(id, values);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the rows whose property may contain a LIKE pattern, {@code %} and {@code _} being wildcards
+     *
+     * @param property      Property index
+     * @param pattern       Pattern searched anywhere in the text
+     * @param maxCandidates Largest posting list worth intersecting
+     * @return Ids in ascending order, or null if the index cannot narrow the search: it is not built, the
+     * pattern has no literal part of three characters or every trigram is more common than the limit
+     */
+    long[] candidates(int property, String pattern, int maxCandidates) {
+        if (!ready) {
+            return null;
+        }
+        String[] segments = WILDCARDS.split(SearchText.normalize(pattern));
+        Set<Long> trigrams = new HashSet<>();
+        for (String segment : segments) {
+            addTrigrams(segment, trigrams);
+        }
+        if (trigrams.isEmpty()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return null;
+            }
+            Postings[] lists = new Postings[trigrams.size()];
+            int i = 0;
+            for (Long trigram : trigrams) {
+                Postings list = postings[property].get(trigram);
+                if (list == null) {
+                    return NO_IDS;
+                }
+                lists[i++] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            if (lists[0].size > maxCandidates) {
+                return null;
+            }
+            return intersect(lists, property, segments);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(long id, Object[] values) {
+        String[] normalized = new String[properties];
+        for (int i = 0; i < properties; i++) {
+            normalized[i] = values[i] != null ? SearchText.normalize(values[i].toString()) : null;
+        }
+        String[] previous = texts.put(id, normalized);
+        for (int i = 0; i < properties; i++) {
+            String before = previous != null ? previous[i] : null;
+            if (Objects.equals(before, normalized[i])) {
+                continue;
+            }
+            if (before != null) {
+                for (Long trigram : trigrams(before)) {
+                    Postings list = postings[i].get(trigram);
+                    if (list != null && list.remove(id) && list.size == 0) {
+                        postings[i].remove(trigram);
+                    }
+                }
+            }
+            if (normalized[i] != null) {
+                for (Long trigram : trigrams(normalized[i])) {
+                    postings[i].computeIfAbsent(trigram, key -> new Postings()).add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walk the shortest list and keep the ids found in all others whose text holds every segment
+     */
+    private long[] intersect(Postings[] lists, int property, String[] segments) {
+        Postings shortest = lists[0];
+        long[] ids = new long[shortest.size];
+        int size = 0;
+        for (int i = 0; i < shortest.size; i++) {
+            long id = shortest.ids[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.length && inAll; j++) {
+                inAll = lists[j].contains(id);
+            }
+            if (inAll && containsAll(texts.get(id)[property], segments)) {
+                ids[size++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    private static boolean containsAll(String text, String[] segments) {
+        for (String segment : segments) {
+            if (!text.contains(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        addTrigrams(text, trigrams);
+        return trigrams;
+    }
+
+    private static void addTrigrams(String text, Set<Long> trigrams) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+
+    /**
+     * Ids in ascending order. Ids come from a sequence, so adding one is usually an append.
+     */
+    private static final class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insert(-position - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insert(int position, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+    }
+}
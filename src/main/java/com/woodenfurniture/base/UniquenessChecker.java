@@ -0,0 +1,272 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.ColumnarChunk;
+import com.woodenfurniture.base.excel.EntityAccessor;
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Set-based uniqueness check for the {@code unique} columns of an import.
+ * Values are resolved against the database with chunked {@code IN} queries instead of one query per row,
+ * and values repeated inside the uploaded file are detected as well, against the rows accepted so far.
+ * Safe for use from several threads.
+ * <p>
+ * For an upsert import the key column is not checked against the database, since existing keys are the rows
+ * to update, and a value of another unique column only conflicts if it belongs to a row with a different key.
+ *
+ * @param <T> Entity type
+ */
+final class UniquenessChecker<T> {
+
+    private static final int IN_CHUNK_SIZE = 1000;
+    private static final Object NO_KEY = new Object();
+
+    private final EntityManager entityManager;
+    private final Class<T> entityClass;
+    private final EntityAccessor<T> accessor;
+    private final List<SimpleExcelConfig.ColumnMapping> columns;
+    private final String keyField;
+    private final int keyColumn;
+    // Existing value -> key of the row holding it, NO_KEY outside of upserts
+    private final Map<Object, Object>[] existing;
+    private final Set<Object>[] seen;
+
+    UniquenessChecker(EntityManager entityManager, Class<T> entityClass, SimpleExcelConfig config, EntityAccessor<T> accessor) {
+        this(entityManager, entityClass, config, accessor, null);
+    }
+
+    /**
+     * @param keyField Field rows are matched on in an upsert import, null for a plain insert
+     */
+    @SuppressWarnings("unchecked")
+    UniquenessChecker(EntityManager entityManager, Class<T> entityClass, SimpleExcelConfig config, EntityAccessor<T> accessor,
+                      String keyField) {
+        this.entityManager = entityManager;
+        this.entityClass = entityClass;
+        this.accessor = accessor;
+        this.columns = config.getColumn();
+        this.keyField = keyField;
+        this.existing = new Map[columns.size()];
+        this.seen = new Set[columns.size()];
+
+        int key = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getField().equals(keyField)) {
+                // A key may appear once per file, whether or not the column is marked unique
+                key = i;
+                seen[i] = ConcurrentHashMap.newKeySet();
+            } else if (columns.get(i).isUnique()) {
+                existing[i] = new ConcurrentHashMap<>();
+                seen[i] = ConcurrentHashMap.newKeySet();
+            }
+        }
+        this.keyColumn = key;
+    }
+
+    /**
+     * Resolve which values of the unique columns already exist in the database, one round trip per
+     * {@value #IN_CHUNK_SIZE} distinct values and column
+     *
+     * @param entities Imported entities
+     */
+    void prefetch(List<T> entities) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (existing[i] == null || accessor.getFieldType(i) == null) {
+                continue;
+            }
+
+            Set<Object> values = new HashSet<>();
+            for (T entity : entities) {
+                Object value = accessor.get(entity, i);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            prefetch(i, values);
+        }
+    }
+
+    /**
+     * Resolve which values of the unique columns already exist in the database, reading each column of the
+     * staged chunk in turn
+     *
+     * @param cells Staged cell values of an import chunk
+     */
+    void prefetch(ColumnarChunk cells) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (existing[i] == null || accessor.getFieldType(i) == null) {
+                continue;
+            }
+
+            Set<Object> values = new HashSet<>();
+            for (int row = 0; row < cells.size(); row++) {
+                if (!cells.isNull(row, i)) {
+                    values.add(cells.get(row, i));
+                }
+            }
+            prefetch(i, values);
+        }
+    }
+
+    private void prefetch(int column, Set<Object> values) {
+        for (Object[] found : findExisting(columns.get(column).getField(), values)) {
+            existing[column].put(key(found[0]), found[1] == null ? NO_KEY : key(found[1]));
+        }
+    }
+
+    /**
+     * @param column Column index in mapping order
+     * @return Whether values of the column are checked against the database
+     */
+    boolean checksExisting(int column) {
+        return existing[column] != null;
+    }
+
+    /**
+     * Check a value of a unique column against the prefetched database values
+     *
+     * @param entity Entity holding the value
+     * @param column Column index in mapping order
+     * @param value  Field value
+     * @return Error message if the value already exists on another row, null otherwise
+     */
+    String checkExisting(T entity, int column, Object value) {
+        return checkExisting(column, value, () -> accessor.get(entity, keyColumn));
+    }
+
+    /**
+     * Check a value of a unique column of a staged row against the prefetched database values
+     *
+     * @param cells  Staged cell values of an import chunk
+     * @param row    Row in the chunk
+     * @param column Column index in mapping order
+     * @param value  Cell value
+     * @return Error message if the value already exists on another row, null otherwise
+     */
+    String checkExisting(ColumnarChunk cells, int row, int column, Object value) {
+        return checkExisting(column, value, () -> cells.get(row, keyColumn));
+    }
+
+    private String checkExisting(int column, Object value, Supplier<Object> rowKey) {
+        if (existing[column] == null || value == null) {
+            return null;
+        }
+        Object owner = existing[column].get(key(value));
+        if (owner == null) {
+            return null;
+        }
+        // In an upsert the row keeps its own values
+        if (keyColumn >= 0 && owner != NO_KEY && Objects.equals(owner, key(rowKey.get()))) {
+            return null;
+        }
+        return String.format("%s already exists. ", columns.get(column).getField());
+    }
+
+    /**
+     * Check all unique columns of an entity against the values of the rows accepted earlier in the file.
+     * Call in file order so that the first occurrence of a value is the one accepted.
+     *
+     * @param entity Entity
+     * @param valid  Whether the row passed every other check; only the values of a row that is saved are
+     *               registered, so a rejected row never blocks a later one
+     * @return Error messages, or null if no value was accepted before
+     */
+    String checkDuplicates(T entity, boolean valid) {
+        return checkDuplicates(column -> accessor.get(entity, column), valid);
+    }
+
+    /**
+     * Check all unique columns of a staged row against the values of the rows accepted earlier in the file.
+     * Call in file order so that the first occurrence of a value is the one accepted.
+     *
+     * @param cells Staged cell values of an import chunk
+     * @param row   Row in the chunk
+     * @param valid Whether the row passed every other check; only the values of a row that is saved are
+     *              registered, so a rejected row never blocks a later one
+     * @return Error messages, or null if no value was accepted before
+     */
+    String checkDuplicates(ColumnarChunk cells, int row, boolean valid) {
+        return checkDuplicates(column -> cells.get(row, column), valid);
+    }
+
+    private String checkDuplicates(IntFunction<Object> values, boolean valid) {
+        StringBuilder errorMessage = null;
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = seen[i] == null ? null : values.apply(i);
+            if (value != null && seen[i].contains(key(value))) {
+                String error = String.format("%s is duplicated in the file. ", columns.get(i).getField());
+                errorMessage = errorMessage == null ? new StringBuilder(error) : errorMessage.append(error);
+            }
+        }
+        if (errorMessage != null) {
+            return errorMessage.toString();
+        }
+
+        if (valid) {
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = seen[i] == null ? null : values.apply(i);
+                if (value != null) {
+                    seen[i].add(key(value));
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<Object[]> findExisting(String field, Collection<Object> values) {
+        List<Object[]> found = new ArrayList<>();
+        List<Object> chunk = new ArrayList<>(Math.min(values.size(), IN_CHUNK_SIZE));
+        for (Object value : values) {
+            chunk.add(value);
+            if (chunk.size() == IN_CHUNK_SIZE) {
+                found.addAll(queryExisting(field, chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            found.addAll(queryExisting(field, chunk));
+        }
+        return found;
+    }
+
+    private List<Object[]> queryExisting(String field, List<Object> values) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        if (keyColumn >= 0) {
+            query.multiselect(root.get(field), root.get(keyField));
+        } else {
+            query.multiselect(root.get(field));
+        }
+        query.where(root.get(field).in(values));
+
+        List<Object[]> found = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            found.add(new Object[]{tuple.get(0), keyColumn >= 0 ? tuple.get(1) : null});
+        }
+        return found;
+    }
+
+    /**
+     * Strings are compared case-insensitively, like the default MySQL collation
+     */
+    private static Object key(Object value) {
+        return value instanceof String ? ((String) value).toLowerCase(Locale.ROOT) : value;
+    }
+}
@@ -0,0 +1,316 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Bulk upsert of imported entities matched on their {@code code} or {@code uuid}. A chunk is written with
+ * multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE} statements instead of one lookup and one save per row.
+ * New rows get an id from the entity's generator and are inserted with every column. Existing rows only get
+ * the mapped columns and {@code is_deleted} updated. Their version and last-modified audit columns move only
+ * if one of those values actually changed.
+ * <p>
+ * The keys of a chunk are resolved in one {@code IN} query first. That query separates inserts from updates,
+ * and the affected-row count of the statements then separates updated rows from unchanged ones. MySQL
+ * Connector/J reports found rows by default, which counts 1 per insert, 2 per update and 1 per unchanged row.
+ *
+ * @param <T> Entity type
+ */
+@Slf4j
+final class UpsertWriter<T extends BaseEntity> {
+
+    private static final String ID = "id";
+    private static final String UUID = "uuid";
+    private static final String CODE = "code";
+    private static final int IN_CHUNK_SIZE = 1000;
+    // MySQL limit on placeholders per prepared statement
+    private static final int MAX_PARAMETERS = 65_535;
+
+    // Written on insert, never updated from the file
+    private static final Set<String> INSERT_ONLY = Set.of(
+            UUID, CODE, "version", "createdDate", "createdBy", "lastModifiedDate", "lastModifiedBy");
+
+    private final Class<T> entityClass;
+    private final String keyField;
+    private final Set<String> updatedFields = new HashSet<>();
+    private final AbstractEntityPersister persister;
+    private final BeforeExecutionGenerator idGenerator;
+    private final int[] properties;
+    private final Type[] types;
+    private final String insertPrefix;
+    private final String rowPlaceholders;
+    private final String updateClause;
+    private final int rowsPerStatement;
+
+    UpsertWriter(EntityManager entityManager, Class<T> entityClass, SimpleExcelConfig config) {
+        this(entityClass, config, (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class).getMappingMetamodel().getEntityDescriptor(entityClass));
+    }
+
+    UpsertWriter(Class<T> entityClass, SimpleExcelConfig config, AbstractEntityPersister persister) {
+        this.entityClass = entityClass;
+        this.keyField = keyField(config);
+        if (keyField == null) {
+            throw new IllegalArgumentException("Upsert import of " + entityClass.getSimpleName() + " needs a code or uuid column");
+        }
+
+        this.persister = persister;
+        Generator generator = persister.getGenerator();
+        if (!(generator instanceof BeforeExecutionGenerator)) {
+            // An id generated by the insert itself cannot be bound into the multi-row statement
+            throw new IllegalArgumentException("Upsert import of " + entityClass.getSimpleName() + " needs an id generated before insert");
+        }
+        this.idGenerator = (BeforeExecutionGenerator) generator;
+
+        Set<String> mappedFields = new HashSet<>();
+        for (SimpleExcelConfig.ColumnMapping column : config.getColumn()) {
+            mappedFields.add(column.getField());
+        }
+        mappedFields.add("isDeleted");
+        // Normalized shadows follow their text fields
+        SearchText.shadowFields(entityClass).forEach((text, shadow) -> {
+            if (mappedFields.contains(text)) {
+                mappedFields.add(shadow);
+            }
+        });
+
+        // Every single-valued persistent property is inserted, the mapped ones are also updated
+        String[] names = persister.getPropertyNames();
+        Type[] propertyTypes = persister.getPropertyTypes();
+        boolean[] insertable = persister.getPropertyInsertability();
+        List<Integer> written = new ArrayList<>();
+        StringJoiner columns = new StringJoiner(", ");
+        StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+        List<String> updatedColumns = new ArrayList<>();
+        List<String> changeChecks = new ArrayList<>();
+        int columnCount = 0;
+
+        for (String column : persister.getIdentifierColumnNames()) {
+            columns.add(column);
+            placeholders.add("?");
+            columnCount++;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!insertable[i] || propertyTypes[i].isCollectionType()) {
+                if (propertyTypes[i].isCollectionType() && mappedFields.contains(names[i])) {
+                    log.warn("Collection '{}' of {} is not written by upsert imports", names[i], entityClass.getSimpleName());
+                }
+                continue;
+            }
+            written.add(i);
+            boolean updated = mappedFields.contains(names[i]) && !INSERT_ONLY.contains(names[i]);
+            boolean text = String.class.equals(propertyTypes[i].getReturnedClass());
+            for (String column : persister.getPropertyColumnNames(i)) {
+                columns.add(column);
+                placeholders.add("?");
+                columnCount++;
+                if (updated) {
+                    updatedFields.add(names[i]);
+                    updatedColumns.add(column);
+                    // Binary comparison so that a change of case counts as a change
+                    changeChecks.add(text
+                            ? "BINARY " + column + " <=> BINARY VALUES(" + column + ")"
+                            : column + " <=> VALUES(" + column + ")");
+                }
+            }
+        }
+        this.properties = written.stream().mapToInt(Integer::intValue).toArray();
+        this.types = propertyTypes;
+        this.insertPrefix = "INSERT INTO " + persister.getIdentifierTableName() + " (" + columns + ") VALUES ";
+        this.rowPlaceholders = placeholders.toString();
+        this.updateClause = buildUpdateClause(updatedColumns, changeChecks);
+        this.rowsPerStatement = Math.max(1, MAX_PARAMETERS / columnCount);
+    }
+
+    /**
+     * Field an upsert import matches rows on
+     *
+     * @param config Import configuration
+     * @return {@code code} if mapped, else {@code uuid} if mapped, else null
+     */
+    static String keyField(SimpleExcelConfig config) {
+        boolean uuid = false;
+        for (SimpleExcelConfig.ColumnMapping column : config.getColumn()) {
+            if (CODE.equals(column.getField())) {
+                return CODE;
+            }
+            uuid |= UUID.equals(column.getField());
+        }
+        return uuid ? UUID : null;
+    }
+
+    String getKeyField() {
+        return keyField;
+    }
+
+    /**
+     * Whether rows that already exist take the imported value of a field, rather than keep their own
+     *
+     * @param field Field name
+     * @return True for the mapped fields that are not insert-only
+     */
+    boolean updates(String field) {
+        return updatedFields.contains(field);
+    }
+
+    /**
+     * Upsert a chunk of validated entities. Must run inside a transaction.
+     *
+     * @param entityManager Entity manager bound to the transaction
+     * @param chunk         Entities to write, keys unique within the chunk
+     * @param auditor       Current auditor for the created-by and last-modified-by columns
+     * @return Row counts of the chunk
+     */
+    Result write(EntityManager entityManager, List<T> chunk, String auditor) {
+        Result result = new Result();
+        if (chunk.isEmpty()) {
+            return result;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+
+        // Existing rows keep their id, new rows draw one from the generator
+        Map<Object, Long> existingIds = findExistingIds(entityManager, chunk);
+        LocalDateTime now = LocalDateTime.now();
+        for (T entity : chunk) {
+            Long id = existingIds.get(key(keyOf(entity)));
+            if (id == null) {
+                id = (Long) idGenerator.generate(session, entity, null, EventType.INSERT);
+                result.inserted++;
+            }
+            entity.setId(id);
+            entity.prePersist();
+            entity.setVersion(0L);
+            entity.setCreatedDate(now);
+            entity.setCreatedBy(auditor);
+            entity.setLastModifiedDate(now);
+            entity.setLastModifiedBy(auditor);
+        }
+        int existing = chunk.size() - result.inserted;
+
+        long[] affected = {0};
+        session.unwrap(Session.class).doWork(connection -> {
+            for (int from = 0; from < chunk.size(); from += rowsPerStatement) {
+                List<T> rows = chunk.subList(from, Math.min(chunk.size(), from + rowsPerStatement));
+                try (PreparedStatement statement = connection.prepareStatement(statement(rows.size()))) {
+                    int index = 1;
+                    for (T row : rows) {
+                        index = bind(statement, index, row, session);
+                    }
+                    affected[0] += statement.executeUpdate();
+                }
+            }
+        });
+
+        result.updated = (int) (affected[0] - result.inserted - existing);
+        result.unchanged = existing - result.updated;
+        return result;
+    }
+
+    private String statement(int rows) {
+        StringBuilder sql = new StringBuilder(insertPrefix.length() + rows * (rowPlaceholders.length() + 2) + updateClause.length());
+        sql.append(insertPrefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(rowPlaceholders);
+        }
+        return sql.append(updateClause).toString();
+    }
+
+    private int bind(PreparedStatement statement, int index, T entity, SessionImplementor session) throws SQLException {
+        persister.getIdentifierType().nullSafeSet(statement, entity.getId(), index, session);
+        index += persister.getIdentifierColumnNames().length;
+        for (int property : properties) {
+            types[property].nullSafeSet(statement, persister.getPropertyValue(entity, property), index, session);
+            index += persister.getPropertyColumnNames(property).length;
+        }
+        return index;
+    }
+
+    private Map<Object, Long> findExistingIds(EntityManager entityManager, List<T> chunk) {
+        List<Object> keys = new ArrayList<>(chunk.size());
+        for (T entity : chunk) {
+            Object key = keyOf(entity);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+
+        Map<Object, Long> ids = new HashMap<>();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        for (int from = 0; from < keys.size(); from += IN_CHUNK_SIZE) {
+            CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+            Root<T> root = query.from(entityClass);
+            query.multiselect(root.get(keyField), root.get(ID))
+                    .where(root.get(keyField).in(keys.subList(from, Math.min(keys.size(), from + IN_CHUNK_SIZE))));
+            for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+                ids.put(key(tuple.get(0)), (Long) tuple.get(1));
+            }
+        }
+        return ids;
+    }
+
+    private Object keyOf(T entity) {
+        return CODE.equals(keyField) ? entity.getCode() : entity.getUuid();
+    }
+
+    /**
+     * Keys are compared case-insensitively, like the default MySQL collation
+     */
+    private static Object key(Object value) {
+        return value instanceof String ? ((String) value).toLowerCase(Locale.ROOT) : value;
+    }
+
+    /**
+     * Audit columns are assigned first, while the data columns still hold their old values, and only move
+     * when one of the data columns changes
+     */
+    private static String buildUpdateClause(List<String> updatedColumns, List<String> changeChecks) {
+        String unchanged = changeChecks.isEmpty() ? "TRUE" : String.join(" AND ", changeChecks);
+        StringJoiner clause = new StringJoiner(", ", " ON DUPLICATE KEY UPDATE ", "");
+        clause.add("version = IF(" + unchanged + ", version, version + 1)");
+        clause.add("last_modified_date = IF(" + unchanged + ", last_modified_date, VALUES(last_modified_date))");
+        clause.add("last_modified_by = IF(" + unchanged + ", last_modified_by, VALUES(last_modified_by))");
+        for (String column : updatedColumns) {
+            clause.add(column + " = VALUES(" + column + ")");
+        }
+        return clause.toString();
+    }
+
+    /**
+     * Row counts of an upsert
+     */
+    @Getter
+    static final class Result {
+        private int inserted;
+        private int updated;
+        private int unchanged;
+    }
+}
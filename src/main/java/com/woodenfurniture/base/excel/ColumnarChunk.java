@@ -0,0 +1,207 @@
+package com.woodenfurniture.base.excel;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-wise staging of one chunk of parsed rows in direct (off-heap) buffers, so that an import holds
+ * converted cell values without an entity and a boxed value per cell. Cells are laid out column-major, the
+ * cells of one column being contiguous, so a check that walks a column reads sequential memory. Every cell
+ * takes a one-byte type tag and an eight-byte slot:
+ * <ul>
+ *     <li>integers, longs and booleans are stored as longs and doubles as their raw bits;</li>
+ *     <li>dates are stored as epoch days, date-times as epoch nanoseconds (UTC);</li>
+ *     <li>any other value, typically a string, is dictionary-encoded, so a value repeated in the chunk is
+ *     kept once.</li>
+ * </ul>
+ * A chunk is meant to be cleared and reused, so the buffers are allocated once per import. Not thread-safe;
+ * a chunk is handed from one pipeline stage to the next.
+ */
+public final class ColumnarChunk {
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DATE = 5;
+    private static final byte DATE_TIME = 6;
+    private static final byte DICTIONARY = 7;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int capacity;
+    private final int columns;
+    private final ByteBuffer tags;
+    private final LongBuffer slots;
+    private final IntBuffer rowIndexes;
+    private final Map<Object, Integer> dictionaryIds = new HashMap<>();
+    private final List<Object> dictionary = new ArrayList<>();
+    private int size;
+
+    /**
+     * @param capacity Maximum number of rows
+     * @param columns  Number of columns
+     */
+    public ColumnarChunk(int capacity, int columns) {
+        this.capacity = capacity;
+        this.columns = columns;
+        int cells = capacity * Math.max(1, columns);
+        this.tags = ByteBuffer.allocateDirect(cells);
+        this.slots = ByteBuffer.allocateDirect(cells * Long.BYTES).asLongBuffer();
+        this.rowIndexes = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * Stage a row
+     *
+     * @param rowIndex Sheet row index (0-based)
+     * @param values   Converted values in mapping order, copied
+     */
+    public void add(int rowIndex, Object[] values) {
+        if (isFull()) {
+            throw new IllegalStateException("Chunk is full at " + capacity + " rows");
+        }
+        for (int column = 0; column < columns; column++) {
+            put(cell(size, column), values[column]);
+        }
+        rowIndexes.put(size, rowIndex);
+        size++;
+    }
+
+    /**
+     * @param row    Row in the chunk
+     * @param column Column index in mapping order
+     * @return Staged value, boxed
+     */
+    public Object get(int row, int column) {
+        int cell = cell(row, column);
+        long slot = slots.get(cell);
+        switch (tags.get(cell)) {
+            case INT:
+                return (int) slot;
+            case LONG:
+                return slot;
+            case DOUBLE:
+                return Double.longBitsToDouble(slot);
+            case BOOLEAN:
+                return slot != 0;
+            case DATE:
+                return LocalDate.ofEpochDay(slot);
+            case DATE_TIME:
+                return LocalDateTime.ofEpochSecond(Math.floorDiv(slot, NANOS_PER_SECOND),
+                        (int) Math.floorMod(slot, NANOS_PER_SECOND), ZoneOffset.UTC);
+            case DICTIONARY:
+                return dictionary.get((int) slot);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param row    Row in the chunk
+     * @param column Column index in mapping order
+     * @return Whether the cell holds no value
+     */
+    public boolean isNull(int row, int column) {
+        return tags.get(cell(row, column)) == NULL;
+    }
+
+    /**
+     * @param row Row in the chunk
+     * @return Sheet row index of the row
+     */
+    public int rowIndex(int row) {
+        return rowIndexes.get(row);
+    }
+
+    /**
+     * @return Number of staged rows
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return Number of distinct dictionary-encoded values
+     */
+    public int dictionarySize() {
+        return dictionary.size();
+    }
+
+    /**
+     * Drop the staged rows, keeping the buffers for reuse
+     */
+    public void clear() {
+        size = 0;
+        dictionaryIds.clear();
+        dictionary.clear();
+    }
+
+    /**
+     * @return Buffer position of a cell, column-major
+     */
+    int cell(int row, int column) {
+        return column * capacity + row;
+    }
+
+    private void put(int cell, Object value) {
+        byte tag;
+        long slot;
+        if (value == null) {
+            tag = NULL;
+            slot = 0;
+        } else if (value instanceof Integer) {
+            tag = INT;
+            slot = (Integer) value;
+        } else if (value instanceof Long) {
+            tag = LONG;
+            slot = (Long) value;
+        } else if (value instanceof Double) {
+            tag = DOUBLE;
+            slot = Double.doubleToRawLongBits((Double) value);
+        } else if (value instanceof Boolean) {
+            tag = BOOLEAN;
+            slot = (Boolean) value ? 1 : 0;
+        } else if (value instanceof LocalDate) {
+            tag = DATE;
+            slot = ((LocalDate) value).toEpochDay();
+        } else if (value instanceof LocalDateTime && fitsEpochNanos((LocalDateTime) value)) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            tag = DATE_TIME;
+            slot = dateTime.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + dateTime.getNano();
+        } else {
+            tag = DICTIONARY;
+            slot = dictionaryIds.computeIfAbsent(value, key -> {
+                dictionary.add(key);
+                return dictionary.size() - 1;
+            });
+        }
+        tags.put(cell, tag);
+        slots.put(cell, slot);
+    }
+
+    /**
+     * Epoch nanoseconds in a long cover the years 1677 to 2262, anything else goes to the dictionary
+     */
+    private static boolean fitsEpochNanos(LocalDateTime value) {
+        int year = value.getYear();
+        return year > 1677 && year < 2262;
+    }
+}
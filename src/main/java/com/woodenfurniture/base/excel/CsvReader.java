@@ -0,0 +1,190 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads RFC 4180 CSV, plain or gzipped. Plain files are scanned through memory-mapped regions of the file;
+ * field bytes are collected in one reusable buffer and decoded only once per non-empty field.
+ * Empty unquoted fields are read as null, blank lines are skipped and a UTF-8 byte order mark is ignored.
+ * Fields are read as they are: a leading apostrophe, such as the one {@link CsvSheetWriter} puts in front of
+ * formula-like text, is kept, since uploaded files may start values with one on purpose.
+ */
+public final class CsvReader {
+
+    private static final long MAP_REGION_SIZE = 64L * 1024 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private CsvReader() {
+    }
+
+    /**
+     * Stream the records of a CSV file
+     *
+     * @param file     CSV file
+     * @param gzip     Whether the file is gzipped
+     * @param maxBytes Ceiling on the decompressed size of a gzipped file, 0 or less for none
+     * @param handler  Record callback, the record index is the row index
+     * @throws IOException if the file cannot be read or has an unterminated quoted field
+     */
+    public static void read(Path file, boolean gzip, long maxBytes, StreamingSheetReader.RowHandler handler) throws IOException {
+        Parser parser = new Parser(handler);
+        if (gzip) {
+            try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file), GZIP_BUFFER_SIZE)) {
+                byte[] buffer = new byte[GZIP_BUFFER_SIZE];
+                long total = 0;
+                int read;
+                while ((read = inputStream.read(buffer)) > 0) {
+                    total += read;
+                    if (maxBytes > 0 && total > maxBytes) {
+                        throw new AppException(ErrorCode.IMPORT_FILE_TOO_LARGE);
+                    }
+                    parser.feed(ByteBuffer.wrap(buffer, 0, read));
+                }
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                for (long position = 0; position < size; position += MAP_REGION_SIZE) {
+                    parser.feed(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_REGION_SIZE, size - position)));
+                }
+            }
+        }
+        parser.finish();
+    }
+
+    /**
+     * Byte-level state machine, fed region by region so that records may span buffers
+     */
+    private static final class Parser {
+
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3;
+
+        private final StreamingSheetReader.RowHandler handler;
+        private final List<Object> cells = new ArrayList<>();
+        private byte[] field = new byte[256];
+        private int length;
+        private boolean quoted;
+        private int state = FIELD_START;
+        private int rowIndex;
+        private boolean started;
+
+        private Parser(StreamingSheetReader.RowHandler handler) {
+            this.handler = handler;
+        }
+
+        private void feed(ByteBuffer buffer) {
+            if (!started) {
+                started = true;
+                skipByteOrderMark(buffer);
+            }
+
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                switch (state) {
+                    case FIELD_START:
+                        if (b == '"') {
+                            quoted = true;
+                            state = QUOTED;
+                        } else if (b == ',') {
+                            endField();
+                        } else if (b == '\n') {
+                            endRecord();
+                        } else if (b != '\r') {
+                            append(b);
+                            state = UNQUOTED;
+                        }
+                        break;
+                    case UNQUOTED:
+                        if (b == ',') {
+                            endField();
+                        } else if (b == '\n') {
+                            endRecord();
+                        } else if (b != '\r') {
+                            append(b);
+                        }
+                        break;
+                    case QUOTED:
+                        if (b == '"') {
+                            state = QUOTE_IN_QUOTED;
+                        } else {
+                            append(b);
+                        }
+                        break;
+                    default: // QUOTE_IN_QUOTED
+                        if (b == '"') {
+                            append(b);
+                            state = QUOTED;
+                        } else if (b == ',') {
+                            endField();
+                        } else if (b == '\n') {
+                            endRecord();
+                        } else if (b != '\r') {
+                            // Be lenient about text after a closing quote
+                            append(b);
+                            state = UNQUOTED;
+                        }
+                        break;
+                }
+            }
+        }
+
+        private void finish() throws IOException {
+            if (state == QUOTED) {
+                throw new IOException("Unterminated quoted field in CSV record " + (rowIndex + 1));
+            }
+            if (state != FIELD_START || !cells.isEmpty()) {
+                endRecord();
+            }
+        }
+
+        private void append(byte b) {
+            if (length == field.length) {
+                field = Arrays.copyOf(field, length * 2);
+            }
+            field[length++] = b;
+        }
+
+        private void endField() {
+            cells.add(length == 0 && !quoted ? null : new String(field, 0, length, StandardCharsets.UTF_8));
+            length = 0;
+            quoted = false;
+            state = FIELD_START;
+        }
+
+        private void endRecord() {
+            boolean blank = cells.isEmpty() && length == 0 && !quoted;
+            endField();
+            if (!blank) {
+                handler.handleRow(rowIndex++, cells);
+            }
+            cells.clear();
+        }
+
+        private static void skipByteOrderMark(ByteBuffer buffer) {
+            int position = buffer.position();
+            if (buffer.remaining() >= 3
+                    && (buffer.get(position) & 0xFF) == 0xEF
+                    && (buffer.get(position + 1) & 0xFF) == 0xBB
+                    && (buffer.get(position + 2) & 0xFF) == 0xBF) {
+                buffer.position(position + 3);
+            }
+        }
+    }
+}
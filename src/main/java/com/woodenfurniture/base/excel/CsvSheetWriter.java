@@ -0,0 +1,160 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes RFC 4180 CSV, optionally gzipped, straight to the target stream as rows arrive.
+ * The header is the first record; the row and column offsets of the configuration only apply to workbooks.
+ * Once a result column is declared in the header, every record carries it, empty for rows without a result.
+ * Text starting with a character a spreadsheet would evaluate as a formula is prefixed with an apostrophe.
+ * The escape is one way, {@link CsvReader} keeps it.
+ */
+public class CsvSheetWriter implements SheetWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SimpleExcelConfig config;
+    private final GZIPOutputStream gzipStream;
+    private final Writer writer;
+    private boolean resultColumn;
+
+    /**
+     * @param config       Excel mapping configuration
+     * @param outputStream Target stream, left open
+     * @param gzip         Whether to gzip the output
+     * @throws IOException if the gzip header cannot be written
+     */
+    public CsvSheetWriter(SimpleExcelConfig config, OutputStream outputStream, boolean gzip) throws IOException {
+        this.config = config;
+        this.gzipStream = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : null;
+        this.writer = new BufferedWriter(
+                new OutputStreamWriter(gzip ? gzipStream : outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void writeHeader() {
+        writeHeader(null);
+    }
+
+    @Override
+    public void writeHeader(String resultHeader) {
+        List<SimpleExcelConfig.ColumnMapping> mappings = config.getColumn();
+        try {
+            for (int i = 0; i < mappings.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(escapeFormula(mappings.get(i).getHeaderExcel()));
+            }
+            if (resultHeader != null) {
+                resultColumn = true;
+                writer.write(',');
+                writeField(escapeFormula(resultHeader));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeRow(Object[] values) {
+        writeRow(values, null);
+    }
+
+    @Override
+    public void writeRow(Object[] values, String result) {
+        int size = config.getColumn().size();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(toText(values[i]));
+            }
+            if (resultColumn || result != null) {
+                writer.write(',');
+                writeField(escapeFormula(result));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+    }
+
+    @Override
+    public void close() {
+        // The target stream belongs to the caller and nothing else is held
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            // Avoid scientific notation and a trailing ".0" on whole numbers
+            return BigDecimal.valueOf(((Number) value).doubleValue()).stripTrailingZeros().toPlainString();
+        }
+        // Numbers are read back as numbers, only text can smuggle a formula
+        return value instanceof Number ? value.toString() : escapeFormula(value.toString());
+    }
+
+    /**
+     * Prefix text a spreadsheet would evaluate as a formula with an apostrophe
+     */
+    static String escapeFormula(String value) {
+        return value != null && !value.isEmpty() && isFormulaStart(value.charAt(0)) ? "'" + value : value;
+    }
+
+    private static boolean isFormulaStart(char c) {
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+}
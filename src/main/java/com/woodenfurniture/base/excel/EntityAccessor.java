@@ -0,0 +1,202 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compiled field access for the columns of one {@link SimpleExcelConfig} on one entity class.
+ * Fields are resolved once, including inherited ones such as {@code BaseEntity.code}, and accessed
+ * through method handles with a precomputed converter per column.
+ *
+ * @param <T> Entity type
+ */
+@Slf4j
+public final class EntityAccessor<T> {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> entityClass;
+    private final MethodHandle constructor;
+    private final String[] fieldNames;
+    private final Class<?>[] fieldTypes;
+    private final MethodHandle[] getters;
+    private final MethodHandle[] setters;
+    private final Function<Object, Object>[] converters;
+
+    @SuppressWarnings("unchecked")
+    EntityAccessor(Class<T> entityClass, SimpleExcelConfig config) {
+        this.entityClass = entityClass;
+        this.constructor = findConstructor(entityClass);
+
+        List<SimpleExcelConfig.ColumnMapping> mappings = config.getColumn();
+        int size = mappings.size();
+        this.fieldNames = new String[size];
+        this.fieldTypes = new Class<?>[size];
+        this.getters = new MethodHandle[size];
+        this.setters = new MethodHandle[size];
+        this.converters = new Function[size];
+
+        for (int i = 0; i < size; i++) {
+            SimpleExcelConfig.ColumnMapping mapping = mappings.get(i);
+            fieldNames[i] = mapping.getField();
+
+            Field field = findField(entityClass, mapping.getField());
+            if (field == null) {
+                log.warn("Field '{}' not found on {}", mapping.getField(), entityClass.getSimpleName());
+                continue;
+            }
+
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+                fieldTypes[i] = field.getType();
+                getters[i] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                setters[i] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                converters[i] = ValueConverters.forType(field.getType(), mapping.getFormat());
+            } catch (IllegalAccessException e) {
+                log.warn("Field '{}' on {} is not accessible: {}", mapping.getField(), entityClass.getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create a new entity instance through the no-arg constructor
+     *
+     * @return New entity
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException("No accessible no-arg constructor on " + entityClass.getName());
+        }
+        try {
+            return (T) constructor.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to instantiate " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * @return Number of mapped columns
+     */
+    public int size() {
+        return fieldNames.length;
+    }
+
+    /**
+     * @param column Column index in mapping order
+     * @return Java type of the mapped field, or null if the field does not exist
+     */
+    public Class<?> getFieldType(int column) {
+        return fieldTypes[column];
+    }
+
+    /**
+     * Read a column value from an entity
+     *
+     * @param entity Entity
+     * @param column Column index in mapping order
+     * @return Field value, or null if the field does not exist
+     */
+    public Object get(T entity, int column) {
+        MethodHandle getter = getters[column];
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return getter.invokeExact((Object) entity);
+        } catch (Throwable e) {
+            log.error("Error getting field value for {}: {}", fieldNames[column], e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read all column values from an entity
+     *
+     * @param entity Entity
+     * @param values Target array sized to {@link #size()}
+     */
+    public void read(T entity, Object[] values) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            values[i] = get(entity, i);
+        }
+    }
+
+    /**
+     * Convert a cell value to the field type and set it on the entity. Null values are ignored.
+     *
+     * @param entity Entity
+     * @param column Column index in mapping order
+     * @param value  Raw cell value
+     */
+    public void set(T entity, int column, Object value) {
+        setConverted(entity, column, convert(column, value));
+    }
+
+    /**
+     * Convert a cell value to the field type
+     *
+     * @param column Column index in mapping order
+     * @param value  Raw cell value
+     * @return Converted value, or null if the value is null, the field does not exist or the conversion fails
+     */
+    public Object convert(int column, Object value) {
+        if (setters[column] == null || value == null) {
+            return null;
+        }
+        try {
+            return converters[column].apply(value);
+        } catch (RuntimeException e) {
+            log.error("Error converting field value for {}: {}", fieldNames[column], e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Set a value already converted to the field type. Null values are ignored.
+     *
+     * @param entity Entity
+     * @param column Column index in mapping order
+     * @param value  Converted value
+     */
+    public void setConverted(T entity, int column, Object value) {
+        MethodHandle setter = setters[column];
+        if (setter == null || value == null) {
+            return;
+        }
+        try {
+            setter.invokeExact((Object) entity, value);
+        } catch (Throwable e) {
+            log.error("Error setting field value for {}: {}", fieldNames[column], e.getMessage());
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    static Field findField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // Continue with the superclass
+            }
+        }
+        return null;
+    }
+}
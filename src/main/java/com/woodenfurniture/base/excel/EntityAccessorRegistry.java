@@ -0,0 +1,37 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of compiled {@link EntityAccessor}s, built once per (entity class, configuration) pair.
+ * Configurations are held weakly: once a reloaded configuration replaces a cached one and no import uses the
+ * old one any more, its accessors are dropped with it.
+ */
+public final class EntityAccessorRegistry {
+
+    private static final Map<SimpleExcelConfig, Map<Class<?>, EntityAccessor<?>>> ACCESSORS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private EntityAccessorRegistry() {
+    }
+
+    /**
+     * Get the accessor for an entity class and configuration, compiling it on first use
+     *
+     * @param entityClass Entity class
+     * @param config      Excel mapping configuration
+     * @param <T>         Entity type
+     * @return Compiled accessor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityAccessor<T> get(Class<T> entityClass, SimpleExcelConfig config) {
+        // Accessors must not reference the configuration, or it would never be collected
+        return (EntityAccessor<T>) ACCESSORS.computeIfAbsent(config, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entityClass, key -> new EntityAccessor<>(entityClass, config));
+    }
+}
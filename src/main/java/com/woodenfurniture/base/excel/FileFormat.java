@@ -0,0 +1,138 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * File formats supported for import and export, all driven by the same column mappings
+ */
+public enum FileFormat {
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    CSV("csv", "text/csv"),
+    CSV_GZIP("csv.gz", "application/gzip");
+
+    private final String extension;
+    private final String mediaType;
+
+    FileFormat(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Open a writer producing this format
+     *
+     * @param config       Excel mapping configuration
+     * @param outputStream Target stream, left open
+     * @return Sheet writer
+     * @throws IOException if the target cannot be written
+     */
+    public SheetWriter newWriter(SimpleExcelConfig config, OutputStream outputStream) throws IOException {
+        switch (this) {
+            case CSV:
+                return new CsvSheetWriter(config, outputStream, false);
+            case CSV_GZIP:
+                return new CsvSheetWriter(config, outputStream, true);
+            default:
+                return new StreamingSheetWriter(config, outputStream);
+        }
+    }
+
+    /**
+     * Resolve a format from a request parameter such as {@code csv} or {@code csv.gz}
+     *
+     * @param name Format name or extension
+     * @return Format, or null if unknown
+     */
+    public static FileFormat fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        String normalized = name.trim().toLowerCase(Locale.ROOT);
+        for (FileFormat format : values()) {
+            if (format.extension.equals(normalized) || format.name().equalsIgnoreCase(normalized)) {
+                return format;
+            }
+        }
+        return normalized.equals("gz") || normalized.equals("gzip") ? CSV_GZIP : null;
+    }
+
+    /**
+     * Resolve a format from the extension of a file name
+     *
+     * @param fileName File name
+     * @return Format, or null if unknown
+     */
+    public static FileFormat fromFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv.gz") || name.endsWith(".gz")) {
+            return CSV_GZIP;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        return name.endsWith(".xlsx") || name.endsWith(".xls") ? XLSX : null;
+    }
+
+    /**
+     * Resolve the first supported format of an {@code Accept} header, wildcards are ignored
+     *
+     * @param accept Accept header value
+     * @return Format, or null if none is supported
+     */
+    public static FileFormat fromAccept(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        for (String part : accept.split(",")) {
+            String mediaType = part.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            for (FileFormat format : values()) {
+                if (format.mediaType.equals(mediaType)) {
+                    return format;
+                }
+            }
+            if (mediaType.equals("application/x-gzip")) {
+                return CSV_GZIP;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detect the format of file content from its first bytes. Zip and OLE2 containers are Excel workbooks,
+     * gzip streams are gzipped CSV and anything else is read as CSV.
+     *
+     * @param inputStream Content, read up to four bytes and not closed
+     * @return Detected format
+     * @throws IOException if the content cannot be read
+     */
+    public static FileFormat detect(InputStream inputStream) throws IOException {
+        byte[] head = inputStream.readNBytes(4);
+        if (head.length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B) {
+            return CSV_GZIP;
+        }
+        if (head.length == 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4) {
+            return XLSX;
+        }
+        if (head.length == 4 && (head[0] & 0xFF) == 0xD0 && (head[1] & 0xFF) == 0xCF
+                && (head[2] & 0xFF) == 0x11 && (head[3] & 0xFF) == 0xE0) {
+            return XLSX; // Legacy .xls, read through the workbook model
+        }
+        return CSV;
+    }
+}
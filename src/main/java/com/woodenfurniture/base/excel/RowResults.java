@@ -0,0 +1,80 @@
+package com.woodenfurniture.base.excel;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Import messages keyed by sheet row index (0-based). Rows are recorded in ascending order while the sheet
+ * is read, so the indexes are kept in a sorted primitive array and looked up by binary search. Entities are
+ * never used as keys, so no entity is hashed, no lazy association is loaded, and identical rows keep their
+ * own messages. Not thread-safe.
+ */
+public final class RowResults {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] rowIndexes = new int[INITIAL_CAPACITY];
+    private String[] messages = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Record the message of a row, replacing an earlier one
+     *
+     * @param rowIndex Sheet row index
+     * @param message  Message
+     */
+    public void put(int rowIndex, String message) {
+        // Appending is the common case, rows arrive in sheet order
+        int position = size > 0 && rowIndex <= rowIndexes[size - 1]
+                ? Arrays.binarySearch(rowIndexes, 0, size, rowIndex)
+                : -(size + 1);
+        if (position >= 0) {
+            messages[position] = message;
+            return;
+        }
+
+        position = -(position + 1);
+        if (size == rowIndexes.length) {
+            rowIndexes = Arrays.copyOf(rowIndexes, size * 2);
+            messages = Arrays.copyOf(messages, size * 2);
+        }
+        if (position < size) {
+            System.arraycopy(rowIndexes, position, rowIndexes, position + 1, size - position);
+            System.arraycopy(messages, position, messages, position + 1, size - position);
+        }
+        rowIndexes[position] = rowIndex;
+        messages[position] = message;
+        size++;
+    }
+
+    /**
+     * @param rowIndex Sheet row index
+     * @return Message of the row, or null if none was recorded
+     */
+    public String get(int rowIndex) {
+        int position = Arrays.binarySearch(rowIndexes, 0, size, rowIndex);
+        return position >= 0 ? messages[position] : null;
+    }
+
+    /**
+     * @return Number of rows with a message
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visit the recorded rows in ascending row order
+     *
+     * @param consumer Receives each message with its row index
+     */
+    public void forEach(ObjIntConsumer<String> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(messages[i], rowIndexes[i]);
+        }
+    }
+}
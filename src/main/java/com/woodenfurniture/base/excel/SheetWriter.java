@@ -0,0 +1,50 @@
+package com.woodenfurniture.base.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Row-by-row writer for one sheet of an export, independent of the file format
+ */
+public interface SheetWriter extends Closeable {
+
+    /**
+     * Header of the result column of an import report
+     */
+    String RESULT_HEADER = "Result";
+
+    /**
+     * Write the header row from the column mappings
+     */
+    void writeHeader();
+
+    /**
+     * Write the header row from the column mappings followed by the header of a result column, for rows
+     * written with {@link #writeRow(Object[], String)}
+     *
+     * @param resultHeader Header of the result column
+     */
+    void writeHeader(String resultHeader);
+
+    /**
+     * Write a data row
+     *
+     * @param values Cell values in column mapping order
+     */
+    void writeRow(Object[] values);
+
+    /**
+     * Write a data row followed by a result cell
+     *
+     * @param values Cell values in column mapping order
+     * @param result Result message, or null to leave the result cell out
+     */
+    void writeRow(Object[] values, String result);
+
+    /**
+     * Write out everything that is still buffered to the target stream, leaving the stream open
+     *
+     * @throws IOException if writing fails
+     */
+    void finish() throws IOException;
+}
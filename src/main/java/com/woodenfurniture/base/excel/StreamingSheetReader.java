@@ -0,0 +1,211 @@
+package com.woodenfurniture.base.excel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the first sheet of an XLSX file through the XSSF event model.
+ * Shared strings and sheet XML are parsed with SAX, so only the current row is held in memory.
+ */
+@Slf4j
+public final class StreamingSheetReader {
+
+    private StreamingSheetReader() {
+    }
+
+    /**
+     * Callback receiving one sheet row at a time
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * Handle a row
+         *
+         * @param rowIndex Row index in the sheet (0-based)
+         * @param cells    Typed cell values indexed by column (0-based), only valid during the call
+         */
+        void handleRow(int rowIndex, List<Object> cells);
+    }
+
+    /**
+     * Stream the rows of the first sheet of an XLSX file
+     *
+     * @param file    XLSX file
+     * @param handler Row callback
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static void read(File file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(sharedStrings, styles, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Failed to read XLSX sheet: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * SAX handler converting sheet XML into typed row values
+     */
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final StylesTable styles;
+        private final RowHandler handler;
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private final List<Object> cells = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowIndex = -1;
+        private int columnIndex;
+        private String cellType;
+        private int styleIndex;
+        private boolean collecting;
+
+        private SheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, RowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String rowRef = attributes.getValue("r");
+                    rowIndex = rowRef != null ? Integer.parseInt(rowRef) - 1 : rowIndex + 1;
+                    cells.clear();
+                    columnIndex = -1;
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue("r");
+                    columnIndex = cellRef != null ? columnIndexOf(cellRef) : columnIndex + 1;
+                    cellType = attributes.getValue("t");
+                    String style = attributes.getValue("s");
+                    styleIndex = style != null ? Integer.parseInt(style) : -1;
+                    text.setLength(0);
+                    break;
+                case "v":
+                case "t":
+                    collecting = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    setCell(columnIndex, convert());
+                    break;
+                case "row":
+                    handler.handleRow(rowIndex, cells);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private void setCell(int index, Object value) {
+            while (cells.size() <= index) {
+                cells.add(null);
+            }
+            cells.set(index, value);
+        }
+
+        private Object convert() {
+            if (text.length() == 0) {
+                return null;
+            }
+            String raw = text.toString();
+
+            if (cellType == null || "n".equals(cellType)) {
+                double number = Double.parseDouble(raw);
+                if (styleIndex >= 0 && isDateStyle(styleIndex) && DateUtil.isValidExcelDate(number)) {
+                    return DateUtil.getLocalDateTime(number);
+                }
+                return number;
+            }
+
+            switch (cellType) {
+                case "s":
+                    return sharedStrings.getItemAt(Integer.parseInt(raw)).getString();
+                case "inlineStr":
+                case "str":
+                    return raw;
+                case "b":
+                    return "1".equals(raw);
+                case "e":
+                    return "#ERROR";
+                default:
+                    return raw;
+            }
+        }
+
+        private boolean isDateStyle(int index) {
+            return dateStyles.computeIfAbsent(index, i -> {
+                XSSFCellStyle style = styles.getStyleAt(i);
+                return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            });
+        }
+
+        private static int columnIndexOf(String cellRef) {
+            int column = 0;
+            for (int i = 0; i < cellRef.length(); i++) {
+                char c = cellRef.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes a single sheet through SXSSF. Only a sliding window of rows is kept in memory,
+ * older rows are flushed to compressed temp files until the workbook is written out.
+ */
+public class StreamingSheetWriter implements SheetWriter {
+
+    private final SimpleExcelConfig config;
+    private final SXSSFWorkbook workbook;
+    private final SXSSFSheet sheet;
+    private final OutputStream target;
+    private int rowIndex;
+
+    public StreamingSheetWriter(SimpleExcelConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * @param config Excel mapping configuration
+     * @param target Stream the workbook is written to on {@link #finish()}
+     */
+    public StreamingSheetWriter(SimpleExcelConfig config, OutputStream target) {
+        this.config = config;
+        this.target = target;
+        int windowSize = config.getWindowSize() > 0 ? config.getWindowSize() : SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+        this.workbook = new SXSSFWorkbook(windowSize);
+        this.workbook.setCompressTempFiles(true);
+        this.sheet = workbook.createSheet(config.getName());
+        this.rowIndex = config.getRowIndex();
+    }
+
+    @Override
+    public void writeHeader() {
+        writeHeader(null);
+    }
+
+    @Override
+    public void writeHeader(String resultHeader) {
+        Row headerRow = sheet.createRow(rowIndex++);
+
+        int columnIndex = config.getColumnIndex();
+        for (SimpleExcelConfig.ColumnMapping mapping : config.getColumn()) {
+            Cell cell = headerRow.createCell(columnIndex++);
+            cell.setCellValue(mapping.getHeaderExcel());
+        }
+        if (resultHeader != null) {
+            headerRow.createCell(columnIndex).setCellValue(resultHeader);
+        }
+    }
+
+    @Override
+    public void writeRow(Object[] values) {
+        writeRow(values, null);
+    }
+
+    @Override
+    public void writeRow(Object[] values, String result) {
+        Row row = sheet.createRow(rowIndex++);
+        int columnIndex = config.getColumnIndex();
+
+        List<SimpleExcelConfig.ColumnMapping> mappings = config.getColumn();
+        for (int i = 0; i < mappings.size(); i++) {
+            Cell cell = row.createCell(columnIndex++);
+            setCellValue(cell, values[i]);
+        }
+
+        if (result != null) {
+            Cell resultCell = row.createCell(columnIndex);
+            resultCell.setCellValue(result);
+        }
+    }
+
+    /**
+     * Write the workbook to the output stream
+     *
+     * @param outputStream Target stream, left open
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        workbook.write(outputStream);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (target == null) {
+            throw new IllegalStateException("No target stream, use write(OutputStream)");
+        }
+        write(target);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Remove the temp files backing the flushed rows
+        workbook.dispose();
+        workbook.close();
+    }
+
+    private void setCellValue(Cell cell, Object value) {
+        if (value == null) {
+            cell.setBlank();
+            return;
+        }
+
+        if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof LocalDateTime) {
+            cell.setCellValue(value.toString());
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.validation.ValidationPatterns;
+import jakarta.persistence.Column;
+import jakarta.persistence.Lob;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.time.temporal.Temporal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Column checks of one {@link SimpleExcelConfig} on one entity class, compiled once: required flag, type,
+ * length limits and the regular expressions of the configuration together with the shared email and phone
+ * formats. Error messages are formatted at compile time, so checking a valid value allocates nothing.
+ * Matchers are reused per thread. Safe for use from several threads.
+ *
+ * @param <T> Entity type
+ */
+@Slf4j
+public final class ValidationPlan<T> {
+
+    // Configurations are held weakly, so plans of a replaced configuration go once no import uses it
+    private static final Map<SimpleExcelConfig, Map<Class<?>, ValidationPlan<?>>> PLANS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    // Length of a string column without an explicit length, as generated by Hibernate
+    private static final int DEFAULT_COLUMN_LENGTH = 255;
+
+    private final int size;
+    private final boolean[] required;
+    private final boolean[] unique;
+    private final SimpleExcelConfig.FieldType[] types;
+    private final int[] minLengths;
+    private final int[] maxLengths;
+    private final Pattern[] patterns;
+
+    private final String[] requiredErrors;
+    private final String[] typeErrors;
+    private final String[] minLengthErrors;
+    private final String[] maxLengthErrors;
+    private final String[] patternErrors;
+
+    private final ThreadLocal<Matcher[]> matchers;
+
+    private ValidationPlan(Class<T> entityClass, SimpleExcelConfig config) {
+        List<SimpleExcelConfig.ColumnMapping> columns = config.getColumn();
+        this.size = columns.size();
+        this.required = new boolean[size];
+        this.unique = new boolean[size];
+        this.types = new SimpleExcelConfig.FieldType[size];
+        this.minLengths = new int[size];
+        this.maxLengths = new int[size];
+        this.patterns = new Pattern[size];
+        this.requiredErrors = new String[size];
+        this.typeErrors = new String[size];
+        this.minLengthErrors = new String[size];
+        this.maxLengthErrors = new String[size];
+        this.patternErrors = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            SimpleExcelConfig.ColumnMapping column = columns.get(i);
+            String header = column.getHeaderExcel();
+            required[i] = column.isRequired();
+            unique[i] = column.isUnique();
+            types[i] = column.getType();
+            requiredErrors[i] = String.format("%s is required. ", header);
+            typeErrors[i] = typeError(column);
+
+            minLengths[i] = column.getMinLength();
+            maxLengths[i] = column.getMaxLength() > 0
+                    ? column.getMaxLength()
+                    : columnLength(EntityAccessor.findField(entityClass, column.getField()));
+            minLengthErrors[i] = String.format("%s must be at least %d characters long. ", header, minLengths[i]);
+            maxLengthErrors[i] = String.format("%s must be at most %d characters long. ", header, maxLengths[i]);
+
+            patterns[i] = compile(column, entityClass);
+            boolean sharedFormat = column.getRegex() == null || column.getRegex().isEmpty();
+            if (column.getRegexErrorMessage() != null) {
+                patternErrors[i] = column.getRegexErrorMessage().trim() + " ";
+            } else {
+                // The shared email and phone formats report like a type mismatch
+                patternErrors[i] = sharedFormat ? typeErrors[i] : String.format("%s has an invalid format. ", header);
+            }
+        }
+
+        this.matchers = ThreadLocal.withInitial(() -> {
+            Matcher[] perColumn = new Matcher[size];
+            for (int i = 0; i < size; i++) {
+                perColumn[i] = patterns[i] != null ? patterns[i].matcher("") : null;
+            }
+            return perColumn;
+        });
+    }
+
+    /**
+     * Get the plan for an entity class and configuration, compiling it on first use
+     *
+     * @param entityClass Entity class
+     * @param config      Excel mapping configuration
+     * @param <T>         Entity type
+     * @return Compiled plan
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ValidationPlan<T> of(Class<T> entityClass, SimpleExcelConfig config) {
+        // Plans must not reference the configuration, or it would never be collected
+        return (ValidationPlan<T>) PLANS.computeIfAbsent(config, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entityClass, key -> new ValidationPlan<>(entityClass, config));
+    }
+
+    /**
+     * @param column Column index in mapping order
+     * @return Whether the column must be unique
+     */
+    public boolean isUnique(int column) {
+        return unique[column];
+    }
+
+    /**
+     * Run the checks of one column
+     *
+     * @param column Column index in mapping order
+     * @param value  Field value
+     * @return Error message, or null if the value passes. The message of a missing required value is
+     * returned alone, since no further check applies.
+     */
+    public String check(int column, Object value) {
+        if (value == null || (value instanceof String && ((String) value).isBlank())) {
+            return required[column] ? requiredErrors[column] : null;
+        }
+        if (value instanceof Collection) {
+            // Multi-valued column, report the first invalid element
+            for (Object element : (Collection<?>) value) {
+                String error = element != null ? checkValue(column, element) : null;
+                if (error != null) {
+                    return error;
+                }
+            }
+            return null;
+        }
+        return checkValue(column, value);
+    }
+
+    private String checkValue(int column, Object value) {
+        if (!hasType(types[column], value)) {
+            return typeErrors[column];
+        }
+        if (!(value instanceof CharSequence) && patterns[column] == null) {
+            return null;
+        }
+
+        CharSequence text = value instanceof CharSequence ? (CharSequence) value : value.toString();
+        String errors = null;
+        if (value instanceof CharSequence) {
+            if (text.length() < minLengths[column]) {
+                errors = minLengthErrors[column];
+            } else if (maxLengths[column] > 0 && text.length() > maxLengths[column]) {
+                errors = maxLengthErrors[column];
+            }
+        }
+        if (patterns[column] != null && !matchers.get()[column].reset(text).matches()) {
+            errors = errors == null ? patternErrors[column] : errors + patternErrors[column];
+        }
+        return errors;
+    }
+
+    private static boolean hasType(SimpleExcelConfig.FieldType type, Object value) {
+        if (type == null) {
+            return true;
+        }
+        switch (type) {
+            case NUMBER:
+                return value instanceof Number;
+            case DATE:
+                return value instanceof Temporal || value instanceof Date;
+            case BOOLEAN:
+                return value instanceof Boolean;
+            case STRING:
+            case EMAIL:
+            case PHONE:
+                return value instanceof CharSequence;
+            default:
+                return true;
+        }
+    }
+
+    private static String typeError(SimpleExcelConfig.ColumnMapping column) {
+        String header = column.getHeaderExcel();
+        if (column.getType() == null) {
+            return null;
+        }
+        switch (column.getType()) {
+            case NUMBER:
+                return String.format("%s must be a number. ", header);
+            case DATE:
+                return String.format("%s must be a valid date. ", header);
+            case BOOLEAN:
+                return String.format("%s must be true or false. ", header);
+            case EMAIL:
+                return String.format("%s must be a valid email address. ", header);
+            case PHONE:
+                return String.format("%s must be a valid phone number. ", header);
+            default:
+                return String.format("%s must be text. ", header);
+        }
+    }
+
+    /**
+     * The regex of the column, or the shared format of its type. A regex that does not compile is logged
+     * and skipped rather than failing every import of the configuration.
+     */
+    private static Pattern compile(SimpleExcelConfig.ColumnMapping column, Class<?> entityClass) {
+        if (column.getRegex() != null && !column.getRegex().isEmpty()) {
+            try {
+                return Pattern.compile(column.getRegex());
+            } catch (PatternSyntaxException e) {
+                log.warn("Invalid regex for field '{}' on {}: {}", column.getField(), entityClass.getSimpleName(), e.getMessage());
+            }
+        }
+        if (column.getType() == SimpleExcelConfig.FieldType.EMAIL) {
+            return ValidationPatterns.EMAIL;
+        }
+        if (column.getType() == SimpleExcelConfig.FieldType.PHONE) {
+            return ValidationPatterns.PHONE;
+        }
+        return null;
+    }
+
+    /**
+     * Length of the database column behind a string field, 0 if unlimited or unknown
+     */
+    private static int columnLength(Field field) {
+        if (field == null || field.getType() != String.class || field.isAnnotationPresent(Lob.class)) {
+            return 0;
+        }
+        Column column = field.getAnnotation(Column.class);
+        if (column == null) {
+            return DEFAULT_COLUMN_LENGTH;
+        }
+        return column.columnDefinition().isEmpty() ? column.length() : 0;
+    }
+}
@@ -0,0 +1,80 @@
+package com.woodenfurniture.base.excel;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Converters from raw cell values (String, Double, Boolean, LocalDateTime) to entity field types.
+ * A converter is resolved once per column so the per-cell work is a single call.
+ */
+public final class ValueConverters {
+
+    private ValueConverters() {
+    }
+
+    /**
+     * Resolve the converter for a field type
+     *
+     * @param type   Field type
+     * @param format Optional date pattern from the column mapping
+     * @return Converter from cell value to field value
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Function<Object, Object> forType(Class<?> type, String format) {
+        if (type == String.class) {
+            return ValueConverters::toText;
+        }
+        if (type == Integer.class || type == int.class) {
+            return value -> value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(toText(value).trim());
+        }
+        if (type == Long.class || type == long.class) {
+            return value -> value instanceof Number ? ((Number) value).longValue() : Long.valueOf(toText(value).trim());
+        }
+        if (type == Double.class || type == double.class) {
+            return value -> value instanceof Number ? ((Number) value).doubleValue() : Double.valueOf(toText(value).trim());
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return value -> value instanceof Boolean ? value : Boolean.valueOf(value.toString().trim());
+        }
+        if (type == LocalDateTime.class) {
+            DateTimeFormatter formatter = formatter(format, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            return value -> value instanceof LocalDateTime ? value : LocalDateTime.parse(value.toString().trim(), formatter);
+        }
+        if (type == LocalDate.class) {
+            DateTimeFormatter formatter = formatter(format, DateTimeFormatter.ISO_LOCAL_DATE);
+            return value -> {
+                if (value instanceof LocalDateTime) {
+                    return ((LocalDateTime) value).toLocalDate();
+                }
+                return value instanceof LocalDate ? value : LocalDate.parse(value.toString().trim(), formatter);
+            };
+        }
+        if (type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return value -> type.isInstance(value)
+                    ? value
+                    : Enum.valueOf(enumType, value.toString().trim().toUpperCase(Locale.ROOT));
+        }
+        return Function.identity();
+    }
+
+    /**
+     * Render a cell value as text, keeping whole numbers free of a trailing ".0"
+     */
+    private static String toText(Object value) {
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number == Math.rint(number) && !Double.isInfinite(number) && Math.abs(number) < 1e15) {
+                return Long.toString((long) number);
+            }
+        }
+        return value.toString();
+    }
+
+    private static DateTimeFormatter formatter(String format, DateTimeFormatter defaultFormatter) {
+        return format == null || format.isEmpty() ? defaultFormatter : DateTimeFormatter.ofPattern(format);
+    }
+}
@@ -0,0 +1,141 @@
+package com.woodenfurniture.base.excel;
+
+import org.apache.poi.ss.util.WorkbookUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Assembles an XLSX workbook from worksheet parts written by {@link XlsxSheetWriter}, zipping each part into
+ * the target stream as soon as it is added. The sheet names are fixed up front, so the workbook and package
+ * parts are written first and every sheet after that is a single pass over its part.
+ */
+public class XlsxPackageWriter {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private final ZipOutputStream zip;
+    private final List<String> sheetNames;
+    private int sheetsWritten;
+
+    /**
+     * @param outputStream Target stream, left open
+     * @param sheetNames   Sheet names in order, made safe and unique for Excel
+     * @throws IOException if the package parts cannot be written
+     */
+    public XlsxPackageWriter(OutputStream outputStream, List<String> sheetNames) throws IOException {
+        this.zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        this.sheetNames = safeNames(sheetNames);
+        writePackageParts();
+    }
+
+    /**
+     * Append the worksheet part of the next sheet
+     *
+     * @param sheetXml Worksheet part, read to the end and not closed
+     * @throws IOException if writing fails
+     */
+    public void addSheet(InputStream sheetXml) throws IOException {
+        if (sheetsWritten == sheetNames.size()) {
+            throw new IllegalStateException("All " + sheetNames.size() + " sheets have been written");
+        }
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + (++sheetsWritten) + ".xml"));
+        sheetXml.transferTo(zip);
+        zip.closeEntry();
+    }
+
+    /**
+     * Write the zip directory, leaving the target stream open
+     *
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        if (sheetsWritten != sheetNames.size()) {
+            throw new IllegalStateException("Only " + sheetsWritten + " of " + sheetNames.size() + " sheets were written");
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writePackageParts() throws IOException {
+        StringBuilder contentTypes = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+        StringBuilder workbookRels = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(PACKAGE_REL_NS).append("\">");
+
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            workbook.append("<sheet name=\"").append(escape(sheetNames.get(i - 1)))
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"").append(REL_NS).append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        workbookRels.append("<Relationship Id=\"rId").append(sheetNames.size() + 1)
+                .append("\" Type=\"").append(REL_NS).append("/styles\" Target=\"styles.xml\"/>");
+
+        writeEntry("[Content_Types].xml", contentTypes.append("</Types>").toString());
+        writeEntry("_rels/.rels", XML_DECLARATION
+                + "<Relationships xmlns=\"" + PACKAGE_REL_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writeEntry("xl/workbook.xml", workbook.append("</sheets></workbook>").toString());
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRels.append("</Relationships>").toString());
+        writeEntry("xl/styles.xml", XML_DECLARATION
+                + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/></cellXfs>"
+                + "</styleSheet>");
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Excel rejects names over 31 characters, a few special characters and case-insensitive duplicates
+     */
+    private static List<String> safeNames(List<String> names) {
+        List<String> safeNames = new ArrayList<>(names.size());
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i) == null || names.get(i).isBlank()
+                    ? "Sheet" + (i + 1)
+                    : WorkbookUtil.createSafeSheetName(names.get(i));
+            String candidate = name;
+            for (int suffix = 2; !used.add(candidate.toLowerCase(Locale.ROOT)); suffix++) {
+                String tail = " (" + suffix + ")";
+                candidate = name.substring(0, Math.min(name.length(), 31 - tail.length())) + tail;
+            }
+            safeNames.add(candidate);
+        }
+        return safeNames;
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,155 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the worksheet part ({@code xl/worksheets/sheetN.xml}) of one sheet as SpreadsheetML, straight to the
+ * target stream as rows arrive. Strings are written inline, so sheets produced on different threads share no
+ * string table and can be assembled into one workbook by the {@link XlsxPackageWriter}. Cell values follow
+ * {@link StreamingSheetWriter}.
+ */
+public class XlsxSheetWriter implements SheetWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SimpleExcelConfig config;
+    private final Writer writer;
+    private final String[] columnNames;
+    private int rowIndex;
+    private boolean started;
+
+    /**
+     * @param config       Excel mapping configuration
+     * @param outputStream Target stream, left open
+     */
+    public XlsxSheetWriter(SimpleExcelConfig config, OutputStream outputStream) {
+        this.config = config;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.rowIndex = config.getRowIndex();
+
+        // Column letters of the mapped columns and the result column
+        int size = config.getColumn().size() + 1;
+        this.columnNames = new String[size];
+        for (int i = 0; i < size; i++) {
+            columnNames[i] = CellReference.convertNumToColString(config.getColumnIndex() + i);
+        }
+    }
+
+    @Override
+    public void writeHeader() {
+        writeHeader(null);
+    }
+
+    @Override
+    public void writeHeader(String resultHeader) {
+        List<SimpleExcelConfig.ColumnMapping> mappings = config.getColumn();
+        Object[] headers = new Object[mappings.size()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = mappings.get(i).getHeaderExcel();
+        }
+        writeRow(headers, resultHeader);
+    }
+
+    @Override
+    public void writeRow(Object[] values) {
+        writeRow(values, null);
+    }
+
+    @Override
+    public void writeRow(Object[] values, String result) {
+        try {
+            start();
+            String rowNumber = Integer.toString(++rowIndex);
+            writer.write("<row r=\"");
+            writer.write(rowNumber);
+            writer.write("\">");
+            int size = config.getColumn().size();
+            for (int i = 0; i < size; i++) {
+                writeCell(columnNames[i], rowNumber, values[i]);
+            }
+            if (result != null) {
+                writeCell(columnNames[size], rowNumber, result);
+            }
+            writer.write("</row>");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        start();
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        // The target stream belongs to the caller and nothing else is held
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            started = true;
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        }
+    }
+
+    private void writeCell(String column, String rowNumber, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write("<c r=\"");
+        writer.write(column);
+        writer.write(rowNumber);
+        if (value instanceof Number && Double.isFinite(((Number) value).doubleValue())) {
+            writer.write("\"><v>");
+            writer.write(Double.toString(((Number) value).doubleValue()));
+            writer.write("</v></c>");
+        } else if (value instanceof Boolean) {
+            writer.write("\" t=\"b\"><v>");
+            writer.write((Boolean) value ? '1' : '0');
+            writer.write("</v></c>");
+        } else {
+            writer.write("\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            writeEscaped(value.toString());
+            writer.write("</t></is></c>");
+        }
+    }
+
+    private void writeEscaped(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    // Control characters other than tab and line breaks are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        writer.write(c);
+                    }
+            }
+        }
+    }
+}
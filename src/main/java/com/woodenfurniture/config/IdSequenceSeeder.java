@@ -0,0 +1,73 @@
+package com.woodenfurniture.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves the table-backed id sequences past the ids already stored when the application starts. Entity ids used
+ * to come from AUTO_INCREMENT columns; on a database created before, the schema update adds the
+ * {@code <entity>_seq} tables starting at 1, so the first pooled ids would collide with existing rows.
+ * A sequence is only ever moved forward, which makes seeding safe on every start and with several instances.
+ */
+@Slf4j
+@Component
+public class IdSequenceSeeder {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public IdSequenceSeeder(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs while the context starts, before the web server accepts requests that could insert rows
+     */
+    @PostConstruct
+    void seed() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> seed(sessionFactory, persister));
+    }
+
+    private void seed(SessionFactoryImplementor sessionFactory, EntityPersister persister) {
+        Generator generator = persister.getGenerator();
+        if (!(generator instanceof SequenceStyleGenerator) || !(persister instanceof AbstractEntityPersister)) {
+            return;
+        }
+        DatabaseStructure structure = ((SequenceStyleGenerator) generator).getDatabaseStructure();
+        if (structure.isPhysicalSequence()) {
+            // Only the table emulation of MySQL is seeded, a database sequence is left as it is
+            return;
+        }
+
+        AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+        String sequenceTable = sessionFactory.getSqlStringGenerationContext().format(structure.getPhysicalName());
+        String value = SequenceStyleGenerator.DEF_VALUE_COLUMN;
+        // The pooled optimizer hands out the ids below the stored value, so it must reach past the highest id
+        // by a whole pool
+        String sql = "update " + sequenceTable + " set " + value + " = greatest(" + value + ", "
+                + "(select coalesce(max(" + entityPersister.getIdentifierColumnNames()[0] + "), 0) from "
+                + entityPersister.getTableName() + ") + " + structure.getIncrementSize() + ")";
+
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(sql).executeUpdate());
+        log.debug("Seeded id sequence {} of {}", sequenceTable, persister.getEntityName());
+    }
+}
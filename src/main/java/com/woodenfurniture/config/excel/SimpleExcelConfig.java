@@ -1,94 +1,122 @@
 package com.woodenfurniture.config.excel;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
 /**
- * Simple configuration class for Excel import/export mapping using JSON format
+ * Simple configuration class for Excel import/export mapping using JSON format.
+ * Instances are immutable so a parsed configuration can be cached and shared.
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 public class SimpleExcelConfig {
 
     /**
      * Name of the configuration
      */
-    private String name;
+    String name;
 
     /**
      * Row index where data starts (0-based)
      */
-    private int rowIndex;
+    int rowIndex;
 
     /**
      * Column index where data starts (0-based)
      */
-    private int columnIndex;
+    int columnIndex;
+
+    /**
+     * Whether XLSX imports are read row by row through the SAX event model instead of a full workbook
+     */
+    boolean streaming;
+
+    /**
+     * Number of rows kept in memory while exporting, older rows are flushed to disk (0 uses the default of 100)
+     */
+    int windowSize;
+
+    /**
+     * Number of rows persisted per JDBC batch before the persistence context is cleared (0 uses the default of 1000)
+     */
+    int batchSize;
+
+    /**
+     * Number of id ranges exported in parallel, each on its own connection (0 or 1 exports through a single cursor)
+     */
+    int partitions;
 
     /**
      * List of column mappings
      */
-    private List<ColumnMapping> column;
+    List<ColumnMapping> column;
 
     /**
      * Class representing a column mapping
      */
-    @Data
-    @Builder
-    @NoArgsConstructor
-    @AllArgsConstructor
+    @Value
+    @Builder(toBuilder = true)
+    @Jacksonized
     public static class ColumnMapping {
 
         /**
          * Header text in the Excel file
          */
-        private String headerExcel;
+        String headerExcel;
 
         /**
          * Field name in the entity
          */
-        private String field;
+        String field;
 
         /**
          * Whether the field is required
          */
-        private boolean required;
+        boolean required;
 
         /**
          * Whether the field must be unique
          */
-        private boolean unique;
+        boolean unique;
 
         /**
          * Whether the field can have multiple values
          */
-        private boolean multiple;
+        boolean multiple;
 
         /**
          * Data type of the field
          */
-        private FieldType type;
+        FieldType type;
 
         /**
          * Format for date/time fields
          */
-        private String format;
+        String format;
+
+        /**
+         * Minimum length of text values (0 for no minimum)
+         */
+        int minLength;
+
+        /**
+         * Maximum length of text values (0 takes the length of the mapped column, 255 unless declared otherwise)
+         */
+        int maxLength;
 
         /**
          * Regular expression for pattern validation
          */
-        private String regex;
+        String regex;
 
         /**
          * Custom error message for regex validation failure
          */
-        private String regexErrorMessage;
+        String regexErrorMessage;
     }
 
     /**
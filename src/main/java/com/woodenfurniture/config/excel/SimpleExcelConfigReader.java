@@ -1,43 +1,205 @@
 package com.woodenfurniture.config.excel;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Reader for SimpleExcelConfig from JSON files
+ * Reader for SimpleExcelConfig from JSON files.
+ * Each file is parsed once and cached in its immutable form. When an external directory is configured,
+ * files there take precedence over the classpath and are reloaded when they change on disk.
  */
 @Slf4j
 @Component
 public class SimpleExcelConfigReader {
 
     private final ObjectMapper objectMapper;
+    private final Path externalDir;
+    private final Map<String, SimpleExcelConfig> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+
+    private WatchService watchService;
 
     @Autowired
-    public SimpleExcelConfigReader(ObjectMapper objectMapper) {
+    public SimpleExcelConfigReader(
+            ObjectMapper objectMapper,
+            @Value("${excel.config.external-dir:}") String externalDir) {
         this.objectMapper = objectMapper;
+        this.externalDir = externalDir == null || externalDir.isBlank() ? null : Paths.get(externalDir).toAbsolutePath();
     }
 
     /**
-     * Read configuration from a JSON file in the classpath
+     * Read configuration from a JSON file, served from the cache after the first read
      *
-     * @param configPath Path to the configuration file (relative to classpath)
+     * @param configPath Path to the configuration file (relative to classpath or the external directory)
      * @return SimpleExcelConfig object
      */
     public SimpleExcelConfig readConfig(String configPath) {
+        SimpleExcelConfig config = cache.get(configPath);
+        if (config != null) {
+            hits.increment();
+            return config;
+        }
+        return cache.computeIfAbsent(configPath, this::loadConfig);
+    }
+
+    /**
+     * Drop a cached configuration so that the next read parses the file again
+     *
+     * @param configPath Path to the configuration file
+     */
+    public void evict(String configPath) {
+        if (cache.remove(configPath) != null) {
+            reloads.increment();
+            log.info("Excel configuration {} changed, it will be reloaded on next use", configPath);
+        }
+    }
+
+    /**
+     * @return Snapshot of the cache metrics
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), reloads.sum(), loadTimeNanos.sum() / 1_000_000, cache.size());
+    }
+
+    @PostConstruct
+    void startWatcher() {
+        if (externalDir == null || !Files.isDirectory(externalDir)) {
+            return;
+        }
         try {
-            ClassPathResource resource = new ClassPathResource(configPath);
-            try (InputStream inputStream = resource.getInputStream()) {
-                return objectMapper.readValue(inputStream, SimpleExcelConfig.class);
-            }
+            watchService = FileSystems.getDefault().newWatchService();
+            registerTree(externalDir);
+        } catch (IOException e) {
+            log.warn("Cannot watch Excel configuration directory {}: {}", externalDir, e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(this::watch, "excel-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching Excel configuration directory {}", externalDir);
+    }
+
+    @PreDestroy
+    void stopWatcher() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private SimpleExcelConfig loadConfig(String configPath) {
+        misses.increment();
+        long start = System.nanoTime();
+        try (InputStream inputStream = openConfig(configPath)) {
+            SimpleExcelConfig config = compile(objectMapper.readValue(inputStream, SimpleExcelConfig.class));
+            long elapsed = System.nanoTime() - start;
+            loadTimeNanos.add(elapsed);
+            log.debug("Loaded Excel configuration {} in {} ms", configPath, elapsed / 1_000_000);
+            return config;
         } catch (IOException e) {
             log.error("Error reading Excel configuration from {}", configPath, e);
             throw new RuntimeException("Failed to read Excel configuration", e);
         }
     }
-} 
\ No newline at end of file
+
+    private InputStream openConfig(String configPath) throws IOException {
+        if (externalDir != null) {
+            Path file = externalDir.resolve(configPath).normalize();
+            if (file.startsWith(externalDir) && Files.isRegularFile(file)) {
+                return Files.newInputStream(file);
+            }
+        }
+        return new ClassPathResource(configPath).getInputStream();
+    }
+
+    private SimpleExcelConfig compile(SimpleExcelConfig config) {
+        List<SimpleExcelConfig.ColumnMapping> columns = config.getColumn() == null ? List.of() : List.copyOf(config.getColumn());
+        return config.toBuilder().column(columns).build();
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        cache.clear();
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        registerTree(changed);
+                        continue;
+                    }
+                    evict(externalDir.relativize(changed).toString().replace('\\', '/'));
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Excel configuration watcher stopped");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Excel configuration watcher failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cache metrics
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long reloads;
+        private final long totalLoadTimeMillis;
+        private final int size;
+    }
+}
@@ -23,6 +23,18 @@ public enum ErrorCode {
     TOKEN_DISABLED(1014, "This token has been disabled", HttpStatus.BAD_REQUEST),
     INVALID_REQUEST(1015, "Invalid request", HttpStatus.BAD_REQUEST),
     EMAIL_EXISTED(1016, "Email existed", HttpStatus.BAD_REQUEST),
+    IMPORT_JOB_NOT_EXISTED(1017, "Import job is not existed", HttpStatus.NOT_FOUND),
+    IMPORT_JOB_NOT_FINISHED(1018, "Import job has not finished successfully", HttpStatus.CONFLICT),
+    IMPORT_JOB_QUEUE_FULL(1019, "Too many import jobs, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
+    UPSERT_KEY_NOT_MAPPED(1020, "Upsert import needs a code or uuid column", HttpStatus.BAD_REQUEST),
+    IMPORT_FILE_TOO_LARGE(1021, "Import file exceeds the maximum upload size", HttpStatus.PAYLOAD_TOO_LARGE),
+    IMPORT_TOO_MANY_ROWS(1022, "Import file exceeds the maximum number of rows", HttpStatus.PAYLOAD_TOO_LARGE),
+    EXPORT_ENTITY_NOT_EXISTED(1023, "Export entity is not existed", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR(1024, "Page cursor is invalid or was taken under another sort", HttpStatus.BAD_REQUEST),
+    INVALID_SORT_PROPERTY(1025, "Sort property is invalid", HttpStatus.BAD_REQUEST),
+    INVALID_SEARCH_CRITERIA(1026, "Search criteria is invalid", HttpStatus.BAD_REQUEST),
+    IMPORT_BUSY(1027, "Too many imports are running, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
+    EXPORT_CONFIG_NOT_EXISTED(1028, "Export configuration of the entity is not existed", HttpStatus.BAD_REQUEST),
     // Add more error codes above
     ;
 
@@ -0,0 +1,42 @@
+package com.woodenfurniture.export;
+
+import com.woodenfurniture.base.BaseService;
+import com.woodenfurniture.base.excel.FileFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/export")
+@RequiredArgsConstructor
+public class WorkbookExportController {
+
+    private final WorkbookExportService workbookExportService;
+
+    /**
+     * Export several entities into one workbook, one sheet per entity
+     *
+     * @param entities Entity names in sheet order, such as {@code user,role,permission}; every entity with an
+     *                 export configuration if omitted
+     * @return Workbook written straight to the response
+     */
+    @GetMapping("/workbook")
+    public ResponseEntity<StreamingResponseBody> exportWorkbook(@RequestParam(required = false) List<String> entities) {
+        // Resolved before streaming starts so that an unknown or unconfigured entity is reported as an error response
+        List<BaseService<?, ?, ?, ?>> sheets = workbookExportService.resolve(entities);
+        StreamingResponseBody body = outputStream -> workbookExportService.export(sheets, outputStream);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=export." + FileFormat.XLSX.getExtension())
+                .contentType(MediaType.parseMediaType(FileFormat.XLSX.getMediaType()))
+                .body(body);
+    }
+}
@@ -0,0 +1,181 @@
+package com.woodenfurniture.export;
+
+import com.woodenfurniture.base.BaseService;
+import com.woodenfurniture.base.excel.XlsxPackageWriter;
+import com.woodenfurniture.base.excel.XlsxSheetWriter;
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports several entities as the sheets of one XLSX workbook. Each sheet is driven by the export
+ * configuration of its entity and generated on its own thread, with its own read-only transaction, into a
+ * spooled worksheet part. The parts are zipped into the response in sheet order as soon as each one is
+ * complete, so the first sheet is on the wire while later ones are still being generated.
+ */
+@Slf4j
+@Service
+public class WorkbookExportService {
+
+    private static final int SPOOL_BUFFER_SIZE = 64 * 1024;
+    private static final AtomicInteger EXPORT_COUNT = new AtomicInteger();
+
+    // Services by lower-case entity name, such as "user"
+    private final Map<String, BaseService<?, ?, ?, ?>> services = new TreeMap<>();
+    private final int threads;
+
+    @Autowired
+    public WorkbookExportService(
+            List<BaseService<?, ?, ?, ?>> services,
+            @Value("${export.workbook.threads:3}") int threads) {
+        for (BaseService<?, ?, ?, ?> service : services) {
+            this.services.put(service.getEntityClass().getSimpleName().toLowerCase(Locale.ROOT), service);
+        }
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Resolve the services of the requested entities and check that each has an export configuration, so that
+     * a sheet cannot fail for want of one once the workbook is streaming
+     *
+     * @param entityNames Entity names in sheet order, case-insensitive; every entity with an export
+     *                    configuration when null or empty
+     * @return Services in sheet order
+     */
+    public List<BaseService<?, ?, ?, ?>> resolve(List<String> entityNames) {
+        List<BaseService<?, ?, ?, ?>> resolved = new ArrayList<>();
+        if (entityNames == null || entityNames.isEmpty()) {
+            for (BaseService<?, ?, ?, ?> service : services.values()) {
+                if (hasExportConfig(service)) {
+                    resolved.add(service);
+                }
+            }
+            if (resolved.isEmpty()) {
+                throw new AppException(ErrorCode.EXPORT_CONFIG_NOT_EXISTED);
+            }
+            return resolved;
+        }
+
+        for (String entityName : entityNames) {
+            BaseService<?, ?, ?, ?> service = services.get(entityName.trim().toLowerCase(Locale.ROOT));
+            if (service == null) {
+                throw new AppException(ErrorCode.EXPORT_ENTITY_NOT_EXISTED);
+            }
+            if (!hasExportConfig(service)) {
+                throw new AppException(ErrorCode.EXPORT_CONFIG_NOT_EXISTED);
+            }
+            resolved.add(service);
+        }
+        return resolved;
+    }
+
+    /**
+     * Export every row of each entity as one sheet of a workbook
+     *
+     * @param sheets       Services of the entities, in sheet order
+     * @param outputStream Target stream for the workbook, left open
+     */
+    public void export(List<BaseService<?, ?, ?, ?>> sheets, OutputStream outputStream) {
+        int exportId = EXPORT_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, sheets.size())), runnable -> {
+            Thread thread = new Thread(runnable, "workbook-export-" + exportId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Queue<Path> spools = new ConcurrentLinkedQueue<>();
+
+        try {
+            List<String> sheetNames = new ArrayList<>(sheets.size());
+            List<Future<Path>> futures = new ArrayList<>(sheets.size());
+            for (BaseService<?, ?, ?, ?> service : sheets) {
+                SimpleExcelConfig config = service.getExportConfig();
+                sheetNames.add(config.getName() != null ? config.getName() : service.getEntityClass().getSimpleName());
+                futures.add(executor.submit(new DelegatingSecurityContextCallable<>(() -> writeSheet(service, config, spools))));
+            }
+
+            // Sheets finish in any order, they are zipped in sheet order as soon as each is ready
+            XlsxPackageWriter packageWriter = new XlsxPackageWriter(outputStream, sheetNames);
+            for (Future<Path> future : futures) {
+                Path spool = awaitSheet(future);
+                try (InputStream sheetXml = Files.newInputStream(spool)) {
+                    packageWriter.addSheet(sheetXml);
+                }
+                Files.deleteIfExists(spool);
+            }
+            packageWriter.finish();
+            log.info("Exported workbook with sheets {}", sheetNames);
+        } catch (Exception e) {
+            log.error("Error exporting workbook: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to export workbook: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+            for (Path spool : spools) {
+                deleteQuietly(spool);
+            }
+        }
+    }
+
+    private static boolean hasExportConfig(BaseService<?, ?, ?, ?> service) {
+        try {
+            service.getExportConfig();
+            return true;
+        } catch (RuntimeException e) {
+            log.debug("{} has no usable export configuration: {}", service.getEntityClass().getSimpleName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private Path writeSheet(BaseService<?, ?, ?, ?> service, SimpleExcelConfig config, Queue<Path> spools) throws IOException {
+        Path spool = Files.createTempFile("workbook-sheet-", ".xml");
+        spools.add(spool);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(spool), SPOOL_BUFFER_SIZE);
+             XlsxSheetWriter sheetWriter = new XlsxSheetWriter(config, out)) {
+            service.exportData(null, null, sheetWriter);
+            sheetWriter.finish();
+        }
+        return spool;
+    }
+
+    private static Path awaitSheet(Future<Path> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new IllegalStateException("Sheet export failed", cause);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled sheet {}: {}", path, e.getMessage());
+        }
+    }
+}
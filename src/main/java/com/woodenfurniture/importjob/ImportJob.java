@@ -0,0 +1,76 @@
+package com.woodenfurniture.importjob;
+
+import com.woodenfurniture.base.BaseEntity;
+import com.woodenfurniture.base.ImportMode;
+import com.woodenfurniture.base.excel.FileFormat;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of an asynchronous import, persisted so that it can be queried across requests and restarts.
+ * The job is addressed by its uuid. An unfinished job is leased by its owner instance, which renews
+ * {@code heartbeatAt} while the job is queued or running.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@EqualsAndHashCode(callSuper = true)
+public class ImportJob extends BaseEntity {
+    String entityName;
+    String fileName;
+
+    @Enumerated(EnumType.STRING)
+    Status status;
+
+    @Enumerated(EnumType.STRING)
+    ImportMode mode;
+
+    long rowsRead;
+    long rowsValidated;
+    long rowsSaved;
+    long rowsFailed;
+
+    // Breakdown of the saved rows of an upsert
+    long rowsInserted;
+    long rowsUpdated;
+    long rowsUnchanged;
+
+    @Enumerated(EnumType.STRING)
+    FileFormat resultFormat;
+
+    String resultPath;
+
+    @Column(length = 1000)
+    String errorMessage;
+
+    LocalDateTime startedAt;
+    LocalDateTime finishedAt;
+
+    // Instance that queued the job and runs it, and the last time it confirmed it still does
+    String owner;
+    LocalDateTime heartbeatAt;
+
+    /**
+     * Lifecycle of an import job
+     */
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
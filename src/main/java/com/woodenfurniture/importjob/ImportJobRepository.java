@@ -0,0 +1,70 @@
+package com.woodenfurniture.importjob;
+
+import com.woodenfurniture.base.BaseRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImportJobRepository extends BaseRepository<ImportJob, Long> {
+    Optional<ImportJob> findByUuidAndEntityName(String uuid, String entityName);
+    List<ImportJob> findByOwnerAndStatusIn(String owner, Collection<ImportJob.Status> statuses);
+    List<ImportJob> findByStatusInAndFinishedAtBefore(Collection<ImportJob.Status> statuses, LocalDateTime before);
+
+    /**
+     * Find the jobs in some states whose lease was last renewed before a time, or never
+     */
+    @Query("select j from ImportJob j where j.status in :statuses and (j.heartbeatAt is null or j.heartbeatAt < :before)")
+    List<ImportJob> findExpired(@Param("statuses") Collection<ImportJob.Status> statuses, @Param("before") LocalDateTime before);
+
+    /**
+     * Renew the lease of jobs
+     *
+     * @return Number of updated jobs
+     */
+    @Modifying
+    @Query("update ImportJob j set j.heartbeatAt = :now where j.uuid in :uuids")
+    int renewLease(@Param("uuids") Collection<String> uuids, @Param("now") LocalDateTime now);
+
+    /**
+     * Fail a job that is still in one of some states and whose lease has not been renewed since a time,
+     * in one statement, so that an owner renewing the lease in between keeps its job
+     *
+     * @return 1 if the job was failed, 0 otherwise
+     */
+    @Modifying
+    @Query("update ImportJob j set j.status = :failed, j.errorMessage = :message, j.finishedAt = :now"
+            + " where j.uuid = :uuid and j.status in :statuses and (j.heartbeatAt is null or j.heartbeatAt < :before)")
+    int failExpired(
+            @Param("uuid") String uuid,
+            @Param("statuses") Collection<ImportJob.Status> statuses,
+            @Param("before") LocalDateTime before,
+            @Param("failed") ImportJob.Status failed,
+            @Param("message") String message,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Write the counters of a job in one statement, leaving its version and other columns alone
+     *
+     * @return Number of updated jobs
+     */
+    @Modifying
+    @Query("update ImportJob j set j.rowsRead = :rowsRead, j.rowsValidated = :rowsValidated, j.rowsSaved = :rowsSaved,"
+            + " j.rowsFailed = :rowsFailed, j.rowsInserted = :rowsInserted, j.rowsUpdated = :rowsUpdated,"
+            + " j.rowsUnchanged = :rowsUnchanged where j.uuid = :uuid")
+    int updateProgress(
+            @Param("uuid") String uuid,
+            @Param("rowsRead") long rowsRead,
+            @Param("rowsValidated") long rowsValidated,
+            @Param("rowsSaved") long rowsSaved,
+            @Param("rowsFailed") long rowsFailed,
+            @Param("rowsInserted") long rowsInserted,
+            @Param("rowsUpdated") long rowsUpdated,
+            @Param("rowsUnchanged") long rowsUnchanged);
+}
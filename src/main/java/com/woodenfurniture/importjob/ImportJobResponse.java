@@ -0,0 +1,37 @@
+package com.woodenfurniture.importjob;
+
+import com.woodenfurniture.base.ImportMode;
+import com.woodenfurniture.base.excel.FileFormat;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ImportJobResponse {
+    String id;
+    String entityName;
+    String fileName;
+    ImportJob.Status status;
+    ImportMode mode;
+    FileFormat resultFormat;
+    long rowsRead;
+    long rowsValidated;
+    long rowsSaved;
+    long rowsFailed;
+    long rowsInserted;
+    long rowsUpdated;
+    long rowsUnchanged;
+    String errorMessage;
+    LocalDateTime createdDate;
+    LocalDateTime startedAt;
+    LocalDateTime finishedAt;
+}
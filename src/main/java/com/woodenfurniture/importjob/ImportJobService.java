@@ -0,0 +1,494 @@
+package com.woodenfurniture.importjob;
+
+import com.woodenfurniture.base.ImportLimits;
+import com.woodenfurniture.base.ImportMode;
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs imports in the background on a bounded pool. The upload is spooled to the job directory before
+ * the request returns, the job state is kept in the {@link ImportJob} table and the result file is
+ * written next to the upload so that it can be downloaded once the job has completed.
+ * <p>
+ * Progress checkpoints come from both the reading and the writing thread of an import. They are funnelled
+ * through one maintenance thread, coalesced per job, and written with a single counter UPDATE, so they never
+ * race the versioned saves of the job state.
+ * <p>
+ * Several instances may share the job table. Every job records the instance that owns it, which renews the
+ * job's lease on the maintenance thread while the job is queued or running. A job is only failed as
+ * interrupted when it belongs to this instance at startup, since nothing here can be running it yet, or when
+ * its lease has expired because its owner stopped renewing it.
+ * <p>
+ * Finished jobs are kept for {@code import.jobs.retention}, then their rows and result files are deleted.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final Set<ImportJob.Status> UNFINISHED = EnumSet.of(ImportJob.Status.PENDING, ImportJob.Status.RUNNING);
+    private static final Set<ImportJob.Status> FINISHED = EnumSet.of(ImportJob.Status.COMPLETED, ImportJob.Status.FAILED);
+    private static final Duration RETENTION_SWEEP_INTERVAL = Duration.ofHours(1);
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportLimits importLimits;
+    private final TransactionTemplate jobTransaction;
+    private final Path jobDir;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService maintenance;
+    private final Map<String, ImportProgress> running = new ConcurrentHashMap<>();
+    // Jobs queued or running on this instance, whose leases it renews
+    private final Set<String> owned = ConcurrentHashMap.newKeySet();
+    private final String instanceId;
+    private final Duration heartbeat;
+    private final Duration lease;
+    private final Duration retention;
+
+    @Autowired
+    public ImportJobService(
+            ImportJobRepository importJobRepository,
+            ImportLimits importLimits,
+            PlatformTransactionManager transactionManager,
+            @Value("${import.jobs.dir:}") String jobDir,
+            @Value("${import.jobs.pool-size:2}") int poolSize,
+            @Value("${import.jobs.queue-capacity:50}") int queueCapacity,
+            @Value("${import.jobs.instance-id:}") String instanceId,
+            @Value("${import.jobs.heartbeat:30s}") Duration heartbeat,
+            @Value("${import.jobs.lease:5m}") Duration lease,
+            @Value("${import.jobs.retention:7d}") Duration retention) {
+        this.importJobRepository = importJobRepository;
+        this.importLimits = importLimits;
+        // Job state is committed on its own so that progress is visible while the import transaction is still open
+        this.jobTransaction = new TransactionTemplate(transactionManager);
+        this.jobTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jobDir = (jobDir == null || jobDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "import-jobs")
+                : Paths.get(jobDir)).toAbsolutePath();
+        this.instanceId = instanceId == null || instanceId.isBlank() ? defaultInstanceId() : instanceId;
+        this.heartbeat = heartbeat;
+        this.lease = lease;
+        this.retention = retention;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "import-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "import-job-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Spool an upload and queue it for import
+     *
+     * @param entityName   Name of the imported entity
+     * @param file         Uploaded Excel or CSV file
+     * @param mode         How rows are written
+     * @param resultFormat File format of the result
+     * @param task         Import to run against the spooled file
+     * @return Created job
+     */
+    public ImportJobResponse submit(String entityName, MultipartFile file, ImportMode mode, FileFormat resultFormat, ImportTask task) {
+        ImportJob job = ImportJob.builder()
+                .uuid(UUID.randomUUID().toString())
+                .entityName(entityName)
+                .fileName(file.getOriginalFilename())
+                .status(ImportJob.Status.PENDING)
+                .mode(mode)
+                .resultFormat(resultFormat)
+                .owner(instanceId)
+                .heartbeatAt(LocalDateTime.now())
+                .build();
+        String jobId = job.getUuid();
+        Path source = jobDir.resolve(jobId + ".upload");
+
+        // Reject an oversized upload before it is spooled or queued
+        importLimits.checkSize(file);
+        try {
+            Files.createDirectories(jobDir);
+            file.transferTo(source);
+        } catch (IOException e) {
+            log.error("Error spooling import file for {}", entityName, e);
+            throw new RuntimeException("Failed to store import file", e);
+        }
+        job = importJobRepository.save(job);
+        owned.add(jobId);
+
+        try {
+            executor.execute(new DelegatingSecurityContextRunnable(() -> run(jobId, source, resultFormat, task)));
+        } catch (RejectedExecutionException e) {
+            log.warn("Import job queue is full, rejecting {} import {}", entityName, jobId);
+            owned.remove(jobId);
+            finish(jobId, ImportJob.Status.FAILED, null, ErrorCode.IMPORT_JOB_QUEUE_FULL.getMessage());
+            deleteQuietly(source);
+            throw new AppException(ErrorCode.IMPORT_JOB_QUEUE_FULL);
+        }
+
+        return toResponse(job);
+    }
+
+    /**
+     * Get the state of a job, with live counters if it is running on this instance
+     *
+     * @param entityName Name of the imported entity
+     * @param jobId      Job id
+     * @return Job state
+     */
+    public ImportJobResponse getJob(String entityName, String jobId) {
+        return toResponse(findJob(entityName, jobId));
+    }
+
+    /**
+     * Open the result file of a completed job
+     *
+     * @param entityName Name of the imported entity
+     * @param jobId      Job id
+     * @return Stream over the result file, to be closed by the caller
+     */
+    public InputStream openResult(String entityName, String jobId) {
+        ImportJob job = findJob(entityName, jobId);
+        if (job.getStatus() != ImportJob.Status.COMPLETED || job.getResultPath() == null) {
+            throw new AppException(ErrorCode.IMPORT_JOB_NOT_FINISHED);
+        }
+        try {
+            return Files.newInputStream(Paths.get(job.getResultPath()));
+        } catch (IOException e) {
+            log.error("Error opening result of import job {}", jobId, e);
+            throw new RuntimeException("Failed to read import result", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        failInterruptedJobs();
+        maintenance.scheduleWithFixedDelay(this::maintain, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::deleteExpiredJobs, heartbeat.toMillis(),
+                RETENTION_SWEEP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Jobs of this instance that were queued or running when it stopped cannot be resumed, mark them as failed.
+     * Jobs of other instances are left to their owners, or to the lease expiry if the owner is gone.
+     */
+    void failInterruptedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = 0;
+        for (ImportJob job : importJobRepository.findByOwnerAndStatusIn(instanceId, UNFINISHED)) {
+            if (!owned.contains(job.getUuid()) && fail(job, now, "Interrupted by application restart")) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            log.info("Marked {} interrupted import jobs of {} as failed", failed, instanceId);
+        }
+    }
+
+    /**
+     * Renew the leases of the jobs of this instance and fail the jobs whose owner stopped renewing theirs
+     */
+    void maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            List<String> leased = List.copyOf(owned);
+            if (!leased.isEmpty()) {
+                jobTransaction.executeWithoutResult(status -> importJobRepository.renewLease(leased, now));
+            }
+
+            int failed = 0;
+            for (ImportJob job : importJobRepository.findExpired(UNFINISHED, now.minus(lease))) {
+                if (!owned.contains(job.getUuid()) && fail(job, now, "Owner " + job.getOwner() + " stopped running the job")) {
+                    failed++;
+                }
+            }
+            if (failed > 0) {
+                log.warn("Marked {} import jobs with an expired lease as failed", failed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error maintaining import jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete the jobs that finished longer than the retention ago with their result files, then any file left
+     * in the job directory for that long, such as the results of jobs whose row another instance deleted
+     */
+    void deleteExpiredJobs() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        try {
+            List<ImportJob> expired = importJobRepository.findByStatusInAndFinishedAtBefore(FINISHED, before);
+            if (!expired.isEmpty()) {
+                for (ImportJob job : expired) {
+                    if (job.getResultPath() != null) {
+                        deleteQuietly(Paths.get(job.getResultPath()));
+                    }
+                }
+                jobTransaction.executeWithoutResult(status -> importJobRepository.deleteAllInBatch(expired));
+                log.info("Deleted {} import jobs finished before {}", expired.size(), before);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error deleting expired import jobs: {}", e.getMessage());
+        }
+        deleteExpiredFiles(before.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void deleteExpiredFiles(Instant before) {
+        if (!Files.isDirectory(jobDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(jobDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean inUse = owned.stream().anyMatch(name::startsWith);
+                if (!inUse && Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(before)) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Error deleting expired import files in {}: {}", jobDir, e.getMessage());
+        }
+    }
+
+    /**
+     * Fail an unfinished job unless its lease was renewed since it was read
+     */
+    private boolean fail(ImportJob job, LocalDateTime now, String message) {
+        LocalDateTime before = job.getHeartbeatAt() != null ? job.getHeartbeatAt().plus(1, ChronoUnit.MICROS) : now;
+        Integer updated = jobTransaction.execute(status -> importJobRepository.failExpired(
+                job.getUuid(), UNFINISHED, before, ImportJob.Status.FAILED, message, now));
+        if (updated == null || updated == 0) {
+            return false;
+        }
+        // The upload is only here if this instance spooled it, or the job directory is shared
+        deleteQuietly(jobDir.resolve(job.getUuid() + ".upload"));
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        maintenance.shutdown();
+    }
+
+    private void run(String jobId, Path source, FileFormat resultFormat, ImportTask task) {
+        Path result = jobDir.resolve(jobId + "-result." + resultFormat.getExtension());
+        ImportProgress progress = new ImportProgress(progressWriter(jobId));
+        running.put(jobId, progress);
+        update(jobId, job -> {
+            job.setStatus(ImportJob.Status.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+        });
+
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(result)) {
+                task.run(source, progress, outputStream);
+            }
+            flushProgress(jobId, progress);
+            finish(jobId, ImportJob.Status.COMPLETED, result.toString(), null);
+            log.info("Import job {} completed: {} rows read, {} saved ({} inserted, {} updated, {} unchanged), {} failed",
+                    jobId, progress.getRowsRead(), progress.getRowsSaved(), progress.getRowsInserted(),
+                    progress.getRowsUpdated(), progress.getRowsUnchanged(), progress.getRowsFailed());
+        } catch (Exception e) {
+            log.error("Import job {} failed: {}", jobId, e.getMessage(), e);
+            deleteQuietly(result);
+            flushProgress(jobId, progress);
+            finish(jobId, ImportJob.Status.FAILED, null, e.getMessage());
+        } finally {
+            running.remove(jobId);
+            owned.remove(jobId);
+            deleteQuietly(source);
+        }
+    }
+
+    /**
+     * Checkpoint listener of a job: queues a write of its counters on the maintenance thread, unless one is
+     * queued already, in which case that write picks up the latest counters
+     */
+    private Consumer<ImportProgress> progressWriter(String jobId) {
+        AtomicBoolean queued = new AtomicBoolean();
+        return progress -> {
+            if (!queued.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                maintenance.execute(() -> {
+                    queued.set(false);
+                    writeProgress(jobId, progress);
+                });
+            } catch (RejectedExecutionException e) {
+                queued.set(false);
+            }
+        };
+    }
+
+    /**
+     * Write the final counters of a job once the checkpoints queued before them are written
+     */
+    private void flushProgress(String jobId, ImportProgress progress) {
+        try {
+            maintenance.submit(() -> writeProgress(jobId, progress)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            log.warn("Error writing progress of import job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void writeProgress(String jobId, ImportProgress progress) {
+        try {
+            jobTransaction.executeWithoutResult(status -> importJobRepository.updateProgress(jobId,
+                    progress.getRowsRead(), progress.getRowsValidated(), progress.getRowsSaved(),
+                    progress.getRowsFailed(), progress.getRowsInserted(), progress.getRowsUpdated(),
+                    progress.getRowsUnchanged()));
+        } catch (RuntimeException e) {
+            // A lost progress update must not fail the import itself
+            log.warn("Error writing progress of import job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void finish(String jobId, ImportJob.Status status, String resultPath, String errorMessage) {
+        update(jobId, job -> {
+            job.setStatus(status);
+            job.setResultPath(resultPath);
+            job.setErrorMessage(errorMessage == null || errorMessage.length() <= MAX_ERROR_LENGTH
+                    ? errorMessage
+                    : errorMessage.substring(0, MAX_ERROR_LENGTH));
+            job.setFinishedAt(LocalDateTime.now());
+        });
+    }
+
+    private void update(String jobId, Consumer<ImportJob> change) {
+        try {
+            jobTransaction.executeWithoutResult(status -> importJobRepository.findByUuid(jobId).ifPresent(job -> {
+                change.accept(job);
+                importJobRepository.save(job);
+            }));
+        } catch (RuntimeException e) {
+            // A lost progress update must not fail the import itself
+            log.warn("Error updating import job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private ImportJob findJob(String entityName, String jobId) {
+        return importJobRepository.findByUuidAndEntityName(jobId, entityName)
+                .orElseThrow(() -> new AppException(ErrorCode.IMPORT_JOB_NOT_EXISTED));
+    }
+
+    private ImportJobResponse toResponse(ImportJob job) {
+        ImportJobResponse response = ImportJobResponse.builder()
+                .id(job.getUuid())
+                .entityName(job.getEntityName())
+                .fileName(job.getFileName())
+                .status(job.getStatus())
+                .mode(job.getMode())
+                .resultFormat(job.getResultFormat())
+                .rowsRead(job.getRowsRead())
+                .rowsValidated(job.getRowsValidated())
+                .rowsSaved(job.getRowsSaved())
+                .rowsFailed(job.getRowsFailed())
+                .rowsInserted(job.getRowsInserted())
+                .rowsUpdated(job.getRowsUpdated())
+                .rowsUnchanged(job.getRowsUnchanged())
+                .errorMessage(job.getErrorMessage())
+                .createdDate(job.getCreatedDate())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+
+        ImportProgress progress = running.get(job.getUuid());
+        if (progress != null) {
+            response.setRowsRead(progress.getRowsRead());
+            response.setRowsValidated(progress.getRowsValidated());
+            response.setRowsSaved(progress.getRowsSaved());
+            response.setRowsFailed(progress.getRowsFailed());
+            response.setRowsInserted(progress.getRowsInserted());
+            response.setRowsUpdated(progress.getRowsUpdated());
+            response.setRowsUnchanged(progress.getRowsUnchanged());
+        }
+        return response;
+    }
+
+    private static String defaultInstanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            String instanceId = UUID.randomUUID().toString();
+            log.warn("Cannot resolve the host name, import jobs are owned by {} until restart", instanceId);
+            return instanceId;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Cannot delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Import work run on the job pool
+     */
+    @FunctionalInterface
+    public interface ImportTask {
+
+        /**
+         * @param source       Spooled upload
+         * @param progress     Progress to update while importing
+         * @param outputStream Target stream for the result file
+         */
+        void run(Path source, ImportProgress progress, OutputStream outputStream) throws Exception;
+    }
+}
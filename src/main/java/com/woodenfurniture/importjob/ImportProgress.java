@@ -0,0 +1,94 @@
+package com.woodenfurniture.importjob;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Row counters of a running import. Counters are updated by the import and reported to the listener
+ * at checkpoints: every {@value #READ_CHECKPOINT_ROWS} rows read, after validation and after every saved chunk.
+ * The listener is called on the thread that reached the checkpoint, the reading or the writing thread.
+ */
+public class ImportProgress {
+
+    private static final int READ_CHECKPOINT_ROWS = 5000;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsValidated = new AtomicLong();
+    private final AtomicLong rowsSaved = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong rowsUnchanged = new AtomicLong();
+    private final Consumer<ImportProgress> listener;
+
+    public ImportProgress(Consumer<ImportProgress> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return Progress that is tracked but not reported anywhere, for synchronous imports
+     */
+    public static ImportProgress untracked() {
+        return new ImportProgress(progress -> {
+        });
+    }
+
+    public void rowRead() {
+        if (rowsRead.incrementAndGet() % READ_CHECKPOINT_ROWS == 0) {
+            checkpoint();
+        }
+    }
+
+    public void rowsValidated(int validated, int failed) {
+        rowsValidated.addAndGet(validated);
+        rowsFailed.addAndGet(failed);
+        checkpoint();
+    }
+
+    public void rowsSaved(int saved) {
+        rowsSaved.addAndGet(saved);
+        checkpoint();
+    }
+
+    /**
+     * Record an upserted chunk, all of whose rows count as saved
+     */
+    public void rowsUpserted(int inserted, int updated, int unchanged) {
+        rowsInserted.addAndGet(inserted);
+        rowsUpdated.addAndGet(updated);
+        rowsUnchanged.addAndGet(unchanged);
+        rowsSaved(inserted + updated + unchanged);
+    }
+
+    public void checkpoint() {
+        listener.accept(this);
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsValidated() {
+        return rowsValidated.get();
+    }
+
+    public long getRowsSaved() {
+        return rowsSaved.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public long getRowsInserted() {
+        return rowsInserted.get();
+    }
+
+    public long getRowsUpdated() {
+        return rowsUpdated.get();
+    }
+
+    public long getRowsUnchanged() {
+        return rowsUnchanged.get();
+    }
+}
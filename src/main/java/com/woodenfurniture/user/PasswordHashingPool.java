@@ -0,0 +1,159 @@
+package com.woodenfurniture.user;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dedicated pool for the password hashing of bulk user imports. A BCrypt hash costs tens of milliseconds,
+ * so a large import is bound by hashing and spreads it over one thread per core. The queue is bounded. When
+ * it is full the submitting thread hashes the password itself, which slows the import down instead of
+ * queueing without limit. Once the pool is shut down, submissions are rejected. Queue depth and hash timings are kept as metrics.
+ */
+@Slf4j
+@Component
+public class PasswordHashingPool {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    @Autowired
+    public PasswordHashingPool(
+            PasswordEncoder passwordEncoder,
+            @Value("${import.password-hashing.threads:0}") int threads,
+            @Value("${import.password-hashing.queue-capacity:1000}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        // Fail the import instead of leaving its future pending forever
+                        throw new RejectedExecutionException("Password hashing pool is shut down");
+                    }
+                    callerRuns.incrementAndGet();
+                    runnable.run();
+                });
+    }
+
+    /**
+     * Hash passwords in parallel, returning once all are hashed
+     *
+     * @param rawPasswords Plaintext passwords, null entries stay null
+     * @return Encoded passwords in the same order
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        return encodeAll(rawPasswords, null);
+    }
+
+    /**
+     * Hash passwords in parallel, keeping the current hash of a password that did not change. Checking a
+     * hash costs as much as computing one, so the checks run on the pool as well.
+     *
+     * @param rawPasswords  Plaintext passwords, null entries stay null
+     * @param currentHashes Current hash per password, null entries or a null list for new passwords
+     * @return Encoded passwords in the same order
+     */
+    public List<String> encodeAll(List<String> rawPasswords, List<String> currentHashes) {
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        for (int i = 0; i < rawPasswords.size(); i++) {
+            String rawPassword = rawPasswords.get(i);
+            String currentHash = currentHashes == null ? null : currentHashes.get(i);
+            futures.add(rawPassword == null ? null : executor.submit(() -> encode(rawPassword, currentHash)));
+            maxQueueDepth.accumulate(executor.getQueue().size());
+        }
+
+        List<String> encoded = new ArrayList<>(rawPasswords.size());
+        try {
+            for (Future<String> future : futures) {
+                encoded.add(future == null ? null : future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            });
+            throw new IllegalStateException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return encoded;
+    }
+
+    /**
+     * @return Current metrics of the pool
+     */
+    public Metrics getMetrics() {
+        long count = hashes.sum();
+        return new Metrics(
+                count,
+                count == 0 ? 0 : hashNanos.sum() / count / 1_000_000.0,
+                maxHashNanos.get() / 1_000_000.0,
+                executor.getQueue().size(),
+                maxQueueDepth.get(),
+                executor.getActiveCount(),
+                callerRuns.get());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private String encode(String rawPassword, String currentHash) {
+        long start = System.nanoTime();
+        String encoded = currentHash != null && passwordEncoder.matches(rawPassword, currentHash)
+                ? currentHash
+                : passwordEncoder.encode(rawPassword);
+        long elapsed = System.nanoTime() - start;
+        hashes.increment();
+        hashNanos.add(elapsed);
+        maxHashNanos.accumulate(elapsed);
+        return encoded;
+    }
+
+    /**
+     * Snapshot of the hashing metrics
+     */
+    @lombok.Value
+    public static class Metrics {
+        long hashes;
+        double averageHashMillis;
+        double maxHashMillis;
+        int queueDepth;
+        long maxQueueDepth;
+        int activeThreads;
+        long callerRuns;
+    }
+}
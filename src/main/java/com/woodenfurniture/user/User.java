@@ -1,12 +1,16 @@
 package com.woodenfurniture.user;
 
 import com.woodenfurniture.base.BaseEntity;
+import com.woodenfurniture.base.SearchNormalized;
 import com.woodenfurniture.enums.Gender;
 import com.woodenfurniture.role.Role;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -27,9 +31,13 @@ import java.util.Set;
 @SuperBuilder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
+@Table(indexes = @Index(name = "idx_user_name_normalized", columnList = "name_normalized"))
 @EqualsAndHashCode(callSuper = true)
 public class User extends BaseEntity implements UserDetails {
     String name;
+    @SearchNormalized("name")
+    @Column(name = "name_normalized")
+    String nameNormalized;
     @Enumerated(EnumType.STRING)
     Gender gender;
     //    Address address;
@@ -8,6 +8,10 @@ import com.woodenfurniture.exception.AppException;
 import com.woodenfurniture.exception.ErrorCode;
 import com.woodenfurniture.exception.UserNotFoundException;
 import com.woodenfurniture.role.RoleRepository;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
 import lombok.AccessLevel;
 import lombok.SneakyThrows;
 import lombok.experimental.FieldDefaults;
@@ -17,8 +21,11 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @Service
@@ -29,27 +36,41 @@ public class UserServiceImpl extends BaseServiceImpl<User, Long, UserRequest, Us
     UserRepository userRepository;
     RoleRepository roleRepository;
     PasswordEncoder passwordEncoder;
+    PasswordHashingPool passwordHashingPool;
 
     public UserServiceImpl(UserRepository userRepository,
                            RoleRepository roleRepository,
                            UserMapper userMapper,
                            PasswordEncoder passwordEncoder,
+                           PasswordHashingPool passwordHashingPool,
                            ExcelService excelService,
                            SimpleExcelConfigReader excelConfigReader) {
         super(userRepository, User.class, excelService, userMapper, excelConfigReader);
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashingPool = passwordHashingPool;
     }
 
     @Override
     protected String getImportConfigPath() {
-        return "config/user-import-config.json";
+        return "config/excel/user-import-config.json";
     }
 
     @Override
     protected String getExportConfigPath() {
-        return "config/user-export-config.json";
+        return "config/excel/user-export-config.json";
+    }
+
+    @Override
+    protected List<String> getIndexedSearchProperties() {
+        return List.of("name", "username", "email");
+    }
+
+    @Override
+    protected List<String> getResultMaskedFields() {
+        // Result files hold the uploaded cells, never write plaintext passwords back
+        return List.of("password");
     }
 
     @Override
@@ -89,6 +110,7 @@ public class UserServiceImpl extends BaseServiceImpl<User, Long, UserRequest, Us
 
         // Save user
         user = userRepository.save(user);
+        searchIndex.put(User.class, user);
 
         // Create and return response
         return mapper.toDto(user);
@@ -118,16 +140,80 @@ public class UserServiceImpl extends BaseServiceImpl<User, Long, UserRequest, Us
 
         // Save user
         user = userRepository.save(user);
+        searchIndex.put(User.class, user);
 
         // Create and return response
         return mapper.toDto(user);
     }
 
+    /**
+     * Imported passwords arrive in plaintext, encode those of the valid rows on the hashing pool. In an upsert
+     * an existing user keeps its hash when the imported password still matches it, so that an unchanged row
+     * stays unchanged.
+     */
+    @Override
+    protected void prepareChunk(List<User> rows, String[] errors, String upsertKey) {
+        List<User> valid = new ArrayList<>(rows.size());
+        List<String> rawPasswords = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] == null) {
+                valid.add(rows.get(i));
+                rawPasswords.add(rows.get(i).getPassword());
+            }
+        }
+
+        List<String> currentHashes = upsertKey != null ? findCurrentHashes(valid, upsertKey) : null;
+        List<String> encoded = passwordHashingPool.encodeAll(rawPasswords, currentHashes);
+        for (int i = 0; i < valid.size(); i++) {
+            valid.get(i).setPassword(encoded.get(i));
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Hashed {} imported passwords: {}", valid.size(), passwordHashingPool.getMetrics());
+        }
+    }
+
+    /**
+     * @return Stored password hash per user, null for users that do not exist yet
+     */
+    private List<String> findCurrentHashes(List<User> users, String upsertKey) {
+        List<String> keys = new ArrayList<>(users.size());
+        for (User user : users) {
+            String key = upsertKey(user, upsertKey);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+
+        // Keys compare case-insensitively, like the default MySQL collation
+        Map<String, String> hashes = new HashMap<>();
+        if (!keys.isEmpty()) {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+            Root<User> root = query.from(User.class);
+            query.multiselect(root.get(upsertKey), root.get("password")).where(root.get(upsertKey).in(keys));
+            for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+                hashes.put(tuple.get(0, String.class).toLowerCase(Locale.ROOT), tuple.get(1, String.class));
+            }
+        }
+
+        List<String> currentHashes = new ArrayList<>(users.size());
+        for (User user : users) {
+            String key = upsertKey(user, upsertKey);
+            currentHashes.add(key == null ? null : hashes.get(key.toLowerCase(Locale.ROOT)));
+        }
+        return currentHashes;
+    }
+
+    private static String upsertKey(User user, String upsertKey) {
+        return "code".equals(upsertKey) ? user.getCode() : user.getUuid();
+    }
+
     @Override
     @SneakyThrows
-    protected Map<User, String> validateEntities(List<User> entities, SimpleExcelConfig config) {
+    protected String[] validateEntities(List<User> entities, SimpleExcelConfig config) {
         // Use the base implementation for common validation
-        Map<User, String> validationErrors = super.validateEntities(entities, config);
+        String[] validationErrors = super.validateEntities(entities, config);
 
         // Add any user-specific validation here if needed
         return validationErrors;
@@ -0,0 +1,16 @@
+package com.woodenfurniture.validation;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiled forms of the {@link RegexConstant} formats shared by the bean validators and the import
+ * validation plan, so that both accept the same values and no pattern is compiled per call.
+ */
+public final class ValidationPatterns {
+
+    public static final Pattern EMAIL = Pattern.compile(RegexConstant.EMAIL);
+    public static final Pattern PHONE = Pattern.compile(RegexConstant.PHONE);
+
+    private ValidationPatterns() {
+    }
+}
@@ -1,6 +1,6 @@
 package com.woodenfurniture.validation.annotation;
 
-import com.woodenfurniture.validation.validator.EmailValidator;
+import com.woodenfurniture.validation.validator.PhoneValidator;
 
 import javax.validation.Constraint;
 import javax.validation.Payload;
@@ -16,11 +16,11 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 @Documented
-@Constraint(validatedBy = {EmailValidator.class})
+@Constraint(validatedBy = {PhoneValidator.class})
 @Target({METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER})
 @Retention(RUNTIME)
 public @interface PhoneFormat {
-    String message() default "Email is invalid";
+    String message() default "Phone number is invalid";
 
     Class<?>[] groups() default {};
 
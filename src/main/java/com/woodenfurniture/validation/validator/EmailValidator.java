@@ -1,16 +1,14 @@
 package com.woodenfurniture.validation.validator;
 
+import com.woodenfurniture.validation.ValidationPatterns;
 import com.woodenfurniture.validation.annotation.EmailFormat;
 import org.springframework.util.StringUtils;
 
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class EmailValidator implements ConstraintValidator<EmailFormat, String> {
-    private final Pattern emailPattern = Pattern.compile("^\\S+@\\S+.\\S+$");
 
     @Override
     public void initialize(EmailFormat emailFormat) {
@@ -19,8 +17,7 @@ public class EmailValidator implements ConstraintValidator<EmailFormat, String>
     @Override
     public boolean isValid(String value, ConstraintValidatorContext cxt) {
         if (StringUtils.hasText(value)) {
-            Matcher matcher = emailPattern.matcher(value);
-            return matcher.matches();
+            return ValidationPatterns.EMAIL.matcher(value).matches();
         }
         // Check empty string
         return !Objects.nonNull(value) || !value.isBlank();
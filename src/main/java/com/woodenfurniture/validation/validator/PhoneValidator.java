@@ -1,16 +1,14 @@
 
 package com.woodenfurniture.validation.validator;
 
+import com.woodenfurniture.validation.ValidationPatterns;
 import com.woodenfurniture.validation.annotation.PhoneFormat;
 import org.springframework.util.StringUtils;
 
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class PhoneValidator implements ConstraintValidator<PhoneFormat, String> {
-    private Pattern phonePattern = Pattern.compile("^\\d{9,12}$");
 
     @Override
     public void initialize(PhoneFormat phoneFormat) {
@@ -19,8 +17,7 @@ public class PhoneValidator implements ConstraintValidator<PhoneFormat, String>
     @Override
     public boolean isValid(String value, ConstraintValidatorContext cxt) {
         if (StringUtils.hasText(value)) {
-            Matcher matcher = phonePattern.matcher(value);
-            return matcher.matches();
+            return ValidationPatterns.PHONE.matcher(value).matches();
         }
         return true;
     }
@@ -0,0 +1,70 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.FileFormat;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import com.woodenfurniture.user.User;
+import com.woodenfurniture.user.UserRequest;
+import com.woodenfurniture.user.UserResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BaseControllerTest {
+
+    @SuppressWarnings("unchecked")
+    private final BaseService<User, Long, UserRequest, UserResponse> service = mock(BaseService.class);
+    private final BaseController<User, Long, UserRequest, UserResponse> controller =
+            new BaseController<>(service, "User") {
+            };
+    private final MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv",
+            "Username\nalice\n".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void rejectedImportFailsBeforeTheResponseIsCommitted() {
+        when(service.importData(any(), eq(ImportMode.INSERT), eq(FileFormat.CSV)))
+                .thenThrow(new AppException(ErrorCode.IMPORT_TOO_MANY_ROWS));
+
+        assertThatThrownBy(() -> controller.importData(file, null, null, null))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.IMPORT_TOO_MANY_ROWS);
+    }
+
+    @Test
+    void importStreamsTheSpooledResult() throws Exception {
+        when(service.importData(any(), eq(ImportMode.INSERT), eq(FileFormat.CSV)))
+                .thenReturn(new ByteArrayInputStream("Username,Result\nalice,\n".getBytes(StandardCharsets.UTF_8)));
+
+        ResponseEntity<StreamingResponseBody> response = controller.importData(file, null, null, null);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo("Username,Result\nalice,\n");
+    }
+
+    @Test
+    void invalidExportFailsBeforeTheResponseIsCommitted() {
+        doThrow(new AppException(ErrorCode.INVALID_SEARCH_CRITERIA)).when(service).checkExport(isNull(), isNull());
+
+        assertThatThrownBy(() -> controller.exportData(null, null, null, null))
+                .isInstanceOf(AppException.class);
+        verify(service, never()).exportData(any(), any(), any(FileFormat.class), any());
+    }
+}
@@ -0,0 +1,96 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.ColumnarChunk;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportPipelineExecutorTest {
+
+    private final ImportPipelineExecutor executor = new ImportPipelineExecutor(3, 1, Duration.ofMillis(200));
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void writesChunksInFileOrder() throws Exception {
+        List<Integer> written = new ArrayList<>();
+
+        executor.run(7, 1, rows(100), ImportPipelineExecutorTest::validate, (rows, cells, errors) -> {
+            for (int i = 0; i < cells.size(); i++) {
+                written.add(cells.rowIndex(i));
+            }
+        });
+
+        assertThat(written).hasSize(100).isSorted();
+    }
+
+    @Test
+    void importBeyondTheConcurrencyCapIsRejected() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                executor.run(10, 1, rows(10), ImportPipelineExecutorTest::validate, (rows, cells, errors) -> {
+                    writing.countDown();
+                    release.await();
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> executor.run(10, 1, rows(10), ImportPipelineExecutorTest::validate,
+                (rows, cells, errors) -> {
+                }))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.IMPORT_BUSY);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        // The slot is free again once the first import finished
+        executor.run(10, 1, rows(10), ImportPipelineExecutorTest::validate, (rows, cells, errors) -> {
+        });
+    }
+
+    @Test
+    void failedStageIsRethrownAndFreesTheSlot() throws Exception {
+        assertThatThrownBy(() -> executor.run(5, 1, rows(50), (cells, errors) -> {
+            throw new IllegalArgumentException("broken row");
+        }, (rows, cells, errors) -> {
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("broken row");
+
+        executor.run(5, 1, rows(50), ImportPipelineExecutorTest::validate, (rows, cells, errors) -> {
+        });
+    }
+
+    private static ImportPipeline.Source rows(int count) {
+        return rowConsumer -> {
+            Object[] values = new Object[1];
+            for (int i = 0; i < count; i++) {
+                values[0] = "row " + i;
+                rowConsumer.accept(values, i);
+            }
+        };
+    }
+
+    private static List<Object> validate(ColumnarChunk cells, String[] errors) {
+        return Collections.nCopies(cells.size(), null);
+    }
+}
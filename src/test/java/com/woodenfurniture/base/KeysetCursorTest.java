@@ -0,0 +1,271 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import com.woodenfurniture.user.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    private static final Map<String, Class<?>> TYPES = Map.of(
+            "id", Long.class, "name", String.class, "age", Integer.class, "dob", LocalDate.class);
+
+    private static final List<Row> ROWS = List.of(
+            new Row(1L, "b", 30, LocalDate.of(1990, 1, 1)),
+            new Row(2L, null, 25, null),
+            new Row(3L, "a", null, LocalDate.of(1985, 5, 5)),
+            new Row(4L, "b", 25, LocalDate.of(1990, 1, 1)),
+            new Row(5L, null, null, LocalDate.of(2000, 2, 2)),
+            new Row(6L, "c", 30, null),
+            new Row(7L, "a", 25, LocalDate.of(1985, 5, 5)),
+            new Row(8L, "b", null, LocalDate.of(1970, 7, 7)));
+
+    private final BaseServiceImpl<User, Long, ?, ?> service = new BaseServiceImpl<>(null, User.class, null, null, null) {
+        @Override
+        protected String getImportConfigPath() {
+            return null;
+        }
+
+        @Override
+        protected String getExportConfigPath() {
+            return null;
+        }
+    };
+
+    @Test
+    void tieBreakerIsAppendedOnce() {
+        assertThat(KeysetCursor.withTieBreaker(null)).isEqualTo(Sort.by("id"));
+        assertThat(KeysetCursor.withTieBreaker(Sort.by(Sort.Direction.DESC, "name")))
+                .isEqualTo(Sort.by(Sort.Order.desc("name"), Sort.Order.asc("id")));
+        assertThat(KeysetCursor.withTieBreaker(Sort.by(Sort.Direction.DESC, "id")))
+                .isEqualTo(Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    @Test
+    void tokenRoundTripsNullsAndTypedValues() {
+        Sort keyset = KeysetCursor.withTieBreaker(Sort.by("name", "age", "dob"));
+        String token = KeysetCursor.encode(keyset, new Row(9L, null, 41, LocalDate.of(1983, 3, 4)));
+
+        String[] values = KeysetCursor.decode(token, keyset);
+
+        assertThat(values).containsExactly(null, "41", "1983-03-04", "9");
+        assertThat(KeysetCursor.convert(values[1], Integer.class)).isEqualTo(41);
+        assertThat(KeysetCursor.convert(values[2], LocalDate.class)).isEqualTo(LocalDate.of(1983, 3, 4));
+        assertThat(KeysetCursor.convert(values[0], String.class)).isNull();
+    }
+
+    @Test
+    void tokenOfAnotherSortIsRejected() {
+        String token = KeysetCursor.encode(KeysetCursor.withTieBreaker(Sort.by("name")), ROWS.get(0));
+
+        assertInvalidCursor(() -> KeysetCursor.decode(token, KeysetCursor.withTieBreaker(Sort.by(Sort.Direction.DESC, "name"))));
+        assertInvalidCursor(() -> KeysetCursor.decode(token, KeysetCursor.withTieBreaker(Sort.by("age"))));
+        assertInvalidCursor(() -> KeysetCursor.decode("not a cursor", KeysetCursor.withTieBreaker(Sort.by("name"))));
+    }
+
+    @Test
+    void malformedValueIsAnInvalidCursor() {
+        assertInvalidCursor(() -> KeysetCursor.convert("forty", Integer.class));
+        assertThatThrownBy(() -> KeysetCursor.convert("x", Object.class))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_SORT_PROPERTY);
+    }
+
+    @Test
+    void pagesCoverEveryRowOnceInSortOrder() {
+        List<Sort> sorts = List.of(
+                Sort.unsorted(),
+                Sort.by(Sort.Direction.DESC, "id"),
+                Sort.by("name"),
+                Sort.by(Sort.Direction.DESC, "name"),
+                Sort.by(Sort.Order.desc("age"), Sort.Order.asc("name")),
+                Sort.by(Sort.Order.asc("age"), Sort.Order.desc("dob")),
+                Sort.by(Sort.Order.desc("dob"), Sort.Order.desc("name")));
+
+        for (Sort sort : sorts) {
+            Sort keyset = KeysetCursor.withTieBreaker(sort);
+            List<Long> expected = ROWS.stream().sorted(comparator(keyset)).map(row -> row.id).collect(Collectors.toList());
+            for (int size = 1; size <= 3; size++) {
+                assertThat(pageThrough(keyset, size)).as("%s in pages of %d", sort, size).isEqualTo(expected);
+            }
+        }
+    }
+
+    /**
+     * Page through the rows like the keyset search does, filtering with the seek predicate in memory
+     */
+    private List<Long> pageThrough(Sort keyset, int size) {
+        Comparator<Row> comparator = comparator(keyset);
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            List<Row> candidates = ROWS;
+            if (cursor != null) {
+                Specification<User> seek = service.createSeekSpecification(keyset, KeysetCursor.decode(cursor, keyset));
+                RowCondition condition = (RowCondition) seek.toPredicate(root(), null, criteriaBuilder());
+                candidates = ROWS.stream().filter(condition::matches).collect(Collectors.toList());
+            }
+            List<Row> page = candidates.stream().sorted(comparator).limit(size + 1).collect(Collectors.toList());
+            boolean hasNext = page.size() > size;
+            page = page.subList(0, Math.min(size, page.size()));
+            page.forEach(row -> seen.add(row.id));
+            cursor = hasNext ? KeysetCursor.encode(keyset, page.get(page.size() - 1)) : null;
+        } while (cursor != null);
+        return seen;
+    }
+
+    /**
+     * MySQL order: nulls first when ascending, last when descending
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Row> comparator(Sort keyset) {
+        Comparator<Row> comparator = null;
+        for (Sort.Order order : keyset) {
+            Function<Row, Comparable> key = row -> (Comparable) row.get(order.getProperty());
+            Comparator<Row> next = Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static void assertInvalidCursor(ThrowingCallable call) {
+        assertThatThrownBy(call)
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Root<User> root() {
+        return proxy(Root.class, (method, args) -> {
+            if (method.equals("get")) {
+                String property = (String) args[0];
+                return proxy(Path.class, (pathMethod, pathArgs) -> {
+                    if (pathMethod.equals("getJavaType")) {
+                        return TYPES.get(property);
+                    }
+                    return pathMethod.equals("toString") ? property : null;
+                });
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Criteria builder whose predicates evaluate rows with SQL semantics: a comparison with null is not true
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static CriteriaBuilder criteriaBuilder() {
+        return proxy(CriteriaBuilder.class, (method, args) -> {
+            switch (method) {
+                case "greaterThan":
+                    return condition(row -> {
+                        Comparable value = (Comparable) row.get(args[0].toString());
+                        return value != null && value.compareTo(args[1]) > 0;
+                    });
+                case "lessThan":
+                    return condition(row -> {
+                        Comparable value = (Comparable) row.get(args[0].toString());
+                        return value != null && value.compareTo(args[1]) < 0;
+                    });
+                case "equal":
+                    return condition(row -> args[1].equals(row.get(args[0].toString())));
+                case "isNull":
+                    return condition(row -> row.get(args[0].toString()) == null);
+                case "isNotNull":
+                    return condition(row -> row.get(args[0].toString()) != null);
+                case "and":
+                    return condition(row -> operands(args).stream().allMatch(operand -> operand.matches(row)));
+                case "or":
+                    return condition(row -> operands(args).stream().anyMatch(operand -> operand.matches(row)));
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+    }
+
+    private static List<RowCondition> operands(Object[] args) {
+        List<RowCondition> operands = new ArrayList<>();
+        for (Object arg : args) {
+            if (arg instanceof Object[]) {
+                for (Object operand : (Object[]) arg) {
+                    operands.add((RowCondition) operand);
+                }
+            } else {
+                operands.add((RowCondition) arg);
+            }
+        }
+        return operands;
+    }
+
+    private static Predicate condition(java.util.function.Predicate<Row> test) {
+        return (Predicate) Proxy.newProxyInstance(KeysetCursorTest.class.getClassLoader(),
+                new Class<?>[]{Predicate.class, RowCondition.class},
+                (instance, method, args) -> method.getName().equals("matches") ? test.test((Row) args[0]) : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <X> X proxy(Class<X> type, ProxyHandler handler) {
+        return (X) Proxy.newProxyInstance(KeysetCursorTest.class.getClassLoader(), new Class<?>[]{type},
+                (instance, method, args) -> handler.handle(method.getName(), args == null ? new Object[0] : args));
+    }
+
+    @FunctionalInterface
+    private interface ProxyHandler {
+        Object handle(String method, Object[] args);
+    }
+
+    interface RowCondition {
+        boolean matches(Row row);
+    }
+
+    static final class Row {
+        private final Long id;
+        private final String name;
+        private final Integer age;
+        private final LocalDate dob;
+
+        Row(Long id, String name, Integer age, LocalDate dob) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.dob = dob;
+        }
+
+        Object get(String property) {
+            switch (property) {
+                case "id":
+                    return id;
+                case "name":
+                    return name;
+                case "age":
+                    return age;
+                default:
+                    return dob;
+            }
+        }
+    }
+}
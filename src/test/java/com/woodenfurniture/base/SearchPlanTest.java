@@ -0,0 +1,183 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import com.woodenfurniture.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchPlanTest {
+
+    private static final Map<String, Class<?>> ATTRIBUTES = Map.of(
+            "name", String.class, "nameNormalized", String.class, "age", Integer.class, "dob", LocalDate.class);
+
+    private final Metamodel metamodel = mock(Metamodel.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void mockMetamodel() {
+        EntityType<User> entityType = mock(EntityType.class);
+        when(metamodel.entity(User.class)).thenReturn(entityType);
+        when(entityType.getName()).thenReturn("User");
+        when(entityType.getJavaType()).thenReturn(User.class);
+        doThrow(new IllegalArgumentException()).when(entityType).getAttribute(anyString());
+        ATTRIBUTES.forEach((property, type) -> {
+            Attribute<User, ?> attribute = mock(Attribute.class);
+            doReturn(type).when(attribute).getJavaType();
+            when(attribute.getPersistentAttributeType()).thenReturn(Attribute.PersistentAttributeType.BASIC);
+            doReturn(attribute).when(entityType).getAttribute(property);
+        });
+    }
+
+    @Test
+    void inListIsPaddedToNextPowerOfTwoWithItsLastValue() {
+        assertThat(bindOne("age", BaseSearchRequest.SearchOperator.IN, "7")).isEqualTo(List.of(7));
+        assertThat(bindOne("age", BaseSearchRequest.SearchOperator.IN, "1,2,3")).isEqualTo(List.of(1, 2, 3, 3));
+        assertThat(bindOne("age", BaseSearchRequest.SearchOperator.IN, "1,2,3,4")).isEqualTo(List.of(1, 2, 3, 4));
+        assertThat(bindOne("age", BaseSearchRequest.SearchOperator.NOT_IN, "1,2,3,4,5"))
+                .isEqualTo(List.of(1, 2, 3, 4, 5, 5, 5, 5));
+    }
+
+    @Test
+    void parametersFollowCriteriaOrderAndSkipNullChecks() {
+        BaseSearchRequest request = request(
+                criterion("dob", BaseSearchRequest.SearchOperator.BETWEEN, "2000-01-01,2000-12-31"),
+                criterion("name", BaseSearchRequest.SearchOperator.IS_NULL, null),
+                criterion("age", BaseSearchRequest.SearchOperator.GREATER_THAN, "18"));
+        SearchPlan<User> plan = SearchPlan.of(metamodel, User.class, request, false, true);
+
+        Object[] values = plan.bind(request, null);
+
+        assertThat(values).containsExactly(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31), 18);
+        assertThat(jpql(plan, values)).isEqualTo("select e from User e where e.isDeleted = false"
+                + " and e.dob between :p0 and :p1 and e.name is null and e.age > :p2");
+    }
+
+    @Test
+    void incompleteCriteriaTakeNoPart() {
+        BaseSearchRequest request = request(
+                criterion("age", BaseSearchRequest.SearchOperator.EQUALS, ""),
+                null,
+                criterion(null, BaseSearchRequest.SearchOperator.EQUALS, "x"),
+                criterion("age", BaseSearchRequest.SearchOperator.EQUALS, "3"));
+        SearchPlan<User> plan = SearchPlan.of(metamodel, User.class, request, false, true);
+
+        Object[] values = plan.bind(request, null);
+
+        assertThat(values).containsExactly(3);
+        assertThat(jpql(plan, values)).isEqualTo("select e from User e where e.isDeleted = false and e.age = :p0");
+    }
+
+    @Test
+    void candidateIdsAreBoundLastAndPadded() {
+        BaseSearchRequest request = request(criterion("age", BaseSearchRequest.SearchOperator.LESS_THAN, "40"));
+        request.setIncludeDeleted(true);
+        SearchPlan<User> plan = SearchPlan.of(metamodel, User.class, request, true, true);
+
+        Object[] values = plan.bind(request, new ArrayList<>(List.of(4L, 8L, 15L)));
+
+        assertThat(values).containsExactly(40, List.of(4L, 8L, 15L, 15L));
+        assertThat(jpql(plan, values)).isEqualTo("select e from User e where e.age < :p0 and e.id in :p1");
+    }
+
+    @Test
+    void textMatchIsRewrittenToTheNormalizedShadow() {
+        BaseSearchRequest request = request(criterion("name", BaseSearchRequest.SearchOperator.LIKE, "Đức Anh"));
+        SearchPlan<User> plan = SearchPlan.of(metamodel, User.class, request, false, true);
+
+        Object[] values = plan.bind(request, null);
+
+        assertThat(values).containsExactly("%duc anh%");
+        assertThat(jpql(plan, values)).endsWith("e.nameNormalized like :p0");
+    }
+
+    @Test
+    void textMatchStaysOnTheTextUntilTheShadowIsFilled() {
+        BaseSearchRequest request = request(criterion("name", BaseSearchRequest.SearchOperator.EQUALS, "Đức Anh"));
+        SearchPlan<User> plan = SearchPlan.of(metamodel, User.class, request, false, false);
+
+        Object[] values = plan.bind(request, null);
+
+        assertThat(values).containsExactly("Đức Anh");
+        assertThat(jpql(plan, values)).endsWith("e.name = :p0");
+        assertThat(SearchPlan.of(metamodel, User.class, request, false, true)).isNotSameAs(plan);
+    }
+
+    @Test
+    void sameShapeReusesThePlan() {
+        BaseSearchRequest first = request(criterion("age", BaseSearchRequest.SearchOperator.EQUALS, "1"));
+        BaseSearchRequest second = request(criterion("age", BaseSearchRequest.SearchOperator.EQUALS, "2"));
+
+        assertThat(SearchPlan.of(metamodel, User.class, second, false, true))
+                .isSameAs(SearchPlan.of(metamodel, User.class, first, false, true));
+        assertThat(SearchPlan.of(metamodel, User.class, first, true, true))
+                .isNotSameAs(SearchPlan.of(metamodel, User.class, first, false, true));
+    }
+
+    @Test
+    void invalidCriteriaAreRejected() {
+        assertInvalidCriteria(() -> bindOne("age", BaseSearchRequest.SearchOperator.EQUALS, "old"));
+        assertInvalidCriteria(() -> bindOne("dob", BaseSearchRequest.SearchOperator.BETWEEN, "2000-01-01"));
+        assertInvalidCriteria(() -> bindOne("age", BaseSearchRequest.SearchOperator.LIKE, "1"));
+        assertInvalidCriteria(() -> bindOne("salary", BaseSearchRequest.SearchOperator.EQUALS, "1"));
+    }
+
+    private Object bindOne(String property, BaseSearchRequest.SearchOperator operator, String value) {
+        BaseSearchRequest request = request(criterion(property, operator, value));
+        return SearchPlan.of(metamodel, User.class, request, false, true).bind(request, null)[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String jpql(SearchPlan<User> plan, Object[] values) {
+        EntityManager entityManager = mock(EntityManager.class);
+        TypedQuery<User> query = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(query);
+        plan.createQuery(entityManager, null, values);
+
+        ArgumentCaptor<String> jpql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager).createQuery(jpql.capture(), eq(User.class));
+        return jpql.getValue();
+    }
+
+    private static void assertInvalidCriteria(ThrowingCallable call) {
+        assertThatThrownBy(call)
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_SEARCH_CRITERIA);
+    }
+
+    private static BaseSearchRequest request(BaseSearchRequest.SearchCriteria... criteria) {
+        BaseSearchRequest request = new BaseSearchRequest();
+        request.setCriteria(new ArrayList<>(Arrays.asList(criteria)));
+        return request;
+    }
+
+    private static BaseSearchRequest.SearchCriteria criterion(String property, BaseSearchRequest.SearchOperator operator,
+                                                              String value) {
+        return new BaseSearchRequest.SearchCriteria(property, operator, value, null);
+    }
+}
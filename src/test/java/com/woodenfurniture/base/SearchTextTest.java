@@ -0,0 +1,55 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.user.User;
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTextTest {
+
+    @Test
+    void vietnameseMarksAreStripped() {
+        assertThat(SearchText.normalize("Nguyễn Thị Hồng Nhung")).isEqualTo("nguyen thi hong nhung");
+        assertThat(SearchText.normalize("Trương Quốc Bảo")).isEqualTo("truong quoc bao");
+        assertThat(SearchText.normalize("Phạm Ngọc Ánh")).isEqualTo("pham ngoc anh");
+        assertThat(SearchText.normalize("ỨNG Ỷ ỹ")).isEqualTo("ung y y");
+    }
+
+    @Test
+    void dWithStrokeBecomesD() {
+        assertThat(SearchText.normalize("Đặng Đức Đạt")).isEqualTo("dang duc dat");
+        assertThat(SearchText.normalize("đường")).isEqualTo("duong");
+    }
+
+    @Test
+    void composedAndDecomposedInputNormalizeAlike() {
+        String composed = Normalizer.normalize("Lê Văn Đông", Normalizer.Form.NFC);
+        String decomposed = Normalizer.normalize("Lê Văn Đông", Normalizer.Form.NFD);
+
+        assertThat(SearchText.normalize(decomposed)).isEqualTo(SearchText.normalize(composed)).isEqualTo("le van dong");
+    }
+
+    @Test
+    void plainTextIsOnlyLowerCased() {
+        assertThat(SearchText.normalize("Wooden Chair #42 - 50%_off")).isEqualTo("wooden chair #42 - 50%_off");
+        assertThat(SearchText.normalize("")).isEmpty();
+    }
+
+    @Test
+    void shadowsFollowTheirTextField() {
+        assertThat(SearchText.shadowFields(User.class)).containsExactly(Map.entry("name", "nameNormalized"));
+        assertThat(SearchText.shadowOf(User.class, "name")).isEqualTo("nameNormalized");
+        assertThat(SearchText.shadowOf(User.class, "email")).isNull();
+
+        User user = User.builder().name("Đỗ Thùy Linh").build();
+        SearchText.normalizeShadows(user);
+        assertThat(user.getNameNormalized()).isEqualTo("do thuy linh");
+
+        user.setName(null);
+        SearchText.normalizeShadows(user);
+        assertThat(user.getNameNormalized()).isNull();
+    }
+}
@@ -0,0 +1,140 @@
+package com.woodenfurniture.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+
+    private static final int MAX_CANDIDATES = 10_000;
+
+    @Test
+    void candidatesHoldEveryLiteralPartOfThePattern() {
+        TrigramIndex index = built(
+                new Object[]{"Nguyễn Văn An", "an@example.com"},
+                new Object[]{"Trần Thị Bình", "binh@example.com"},
+                new Object[]{"Lê Văn Bình", null},
+                new Object[]{null, "van@example.org"});
+
+        assertThat(index.candidates(0, "văn", MAX_CANDIDATES)).containsExactly(1L, 3L);
+        assertThat(index.candidates(0, "VAN an", MAX_CANDIDATES)).containsExactly(1L);
+        assertThat(index.candidates(0, "tra%binh", MAX_CANDIDATES)).containsExactly(2L);
+        assertThat(index.candidates(0, "van_bin", MAX_CANDIDATES)).containsExactly(3L);
+        assertThat(index.candidates(1, "example.com", MAX_CANDIDATES)).containsExactly(1L, 2L);
+        assertThat(index.candidates(1, "xyz", MAX_CANDIDATES)).isEmpty();
+    }
+
+    @Test
+    void indexDoesNotNarrowWhatItCannotAnswer() {
+        TrigramIndex index = new TrigramIndex(1);
+        index.put(1, new Object[]{"wooden chair"});
+        assertThat(index.candidates(0, "chair", MAX_CANDIDATES)).as("never built").isNull();
+
+        index.beginRebuild();
+        index.load(1, new Object[]{"wooden chair"});
+        index.load(2, new Object[]{"wooden table"});
+        assertThat(index.candidates(0, "chair", MAX_CANDIDATES)).as("rebuilding").isNull();
+        index.endRebuild(true);
+
+        assertThat(index.candidates(0, "ch", MAX_CANDIDATES)).as("no trigram").isNull();
+        assertThat(index.candidates(0, "%_%", MAX_CANDIDATES)).as("wildcards only").isNull();
+        assertThat(index.candidates(0, "wooden", 1)).as("too common").isNull();
+        assertThat(index.candidates(0, "wooden", 2)).containsExactly(1L, 2L);
+
+        index.beginRebuild();
+        index.endRebuild(false);
+        assertThat(index.candidates(0, "chair", MAX_CANDIDATES)).as("incomplete rebuild").isNull();
+    }
+
+    @Test
+    void updateReplacesTheIndexedText() {
+        TrigramIndex index = built(new Object[]{"oak desk"}, new Object[]{"oak shelf"});
+
+        index.put(1, new Object[]{"pine desk"});
+        index.put(2, new Object[]{null});
+        index.put(3, new Object[]{"oak bench"});
+
+        assertThat(index.candidates(0, "oak", MAX_CANDIDATES)).containsExactly(3L);
+        assertThat(index.candidates(0, "pine", MAX_CANDIDATES)).containsExactly(1L);
+        assertThat(index.candidates(0, "shelf", MAX_CANDIDATES)).isEmpty();
+    }
+
+    @Test
+    void updateDuringRebuildWinsOverTheLoadedRow() {
+        TrigramIndex index = new TrigramIndex(1);
+        index.beginRebuild();
+        index.load(1, new Object[]{"old name"});
+        index.put(1, new Object[]{"new name"});
+        index.put(2, new Object[]{"new row"});
+        // The rebuild read its rows before these updates committed
+        index.load(2, new Object[]{"old row"});
+        index.load(3, new Object[]{"old other"});
+        index.endRebuild(true);
+
+        assertThat(index.candidates(0, "new", MAX_CANDIDATES)).containsExactly(1L, 2L);
+        assertThat(index.candidates(0, "old", MAX_CANDIDATES)).containsExactly(3L);
+
+        // Once the rebuild is over, loads no longer lose to earlier updates
+        index.beginRebuild();
+        index.load(1, new Object[]{"reloaded"});
+        index.endRebuild(true);
+        assertThat(index.candidates(0, "reloaded", MAX_CANDIDATES)).containsExactly(1L);
+        assertThat(index.candidates(0, "new", MAX_CANDIDATES)).isEmpty();
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLostToARebuild() throws Exception {
+        int rows = 2_000;
+        TrigramIndex index = new TrigramIndex(1);
+        index.beginRebuild();
+        CountDownLatch start = new CountDownLatch(1);
+
+        CompletableFuture<Void> loading = CompletableFuture.runAsync(() -> {
+            await(start);
+            for (long id = 1; id <= rows; id++) {
+                index.load(id, new Object[]{"stale " + id});
+            }
+        });
+        CompletableFuture<Void> updating = CompletableFuture.runAsync(() -> {
+            await(start);
+            for (long id = rows; id >= 1; id -= 2) {
+                index.put(id, new Object[]{"fresh " + id});
+            }
+        });
+        start.countDown();
+        CompletableFuture.allOf(loading, updating).get(30, TimeUnit.SECONDS);
+        index.endRebuild(true);
+
+        long[] fresh = index.candidates(0, "fresh", rows);
+        long[] stale = index.candidates(0, "stale", rows);
+        assertThat(LongStream.of(fresh)).hasSize(rows / 2).allMatch(id -> id % 2 == 0);
+        assertThat(LongStream.of(stale)).hasSize(rows / 2).allMatch(id -> id % 2 == 1);
+    }
+
+    /**
+     * Index built from rows with ids from 1
+     */
+    private static TrigramIndex built(Object[]... rows) {
+        TrigramIndex index = new TrigramIndex(rows[0].length);
+        index.beginRebuild();
+        for (int i = 0; i < rows.length; i++) {
+            index.load(i + 1, rows[i]);
+        }
+        index.endRebuild(true);
+        return index;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.base.excel.ColumnarChunk;
+import com.woodenfurniture.base.excel.EntityAccessor;
+import com.woodenfurniture.base.excel.EntityAccessorRegistry;
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UniquenessCheckerTest {
+
+    private final SimpleExcelConfig config = SimpleExcelConfig.builder()
+            .column(List.of(
+                    column("code", false),
+                    column("username", true),
+                    column("email", true)))
+            .build();
+    private final EntityAccessor<User> accessor = EntityAccessorRegistry.get(User.class, config);
+
+    @Test
+    void laterRowWithTheValueOfAnEarlierRejectedRowIsAccepted() {
+        UniquenessChecker<User> checker = new UniquenessChecker<>(null, User.class, config, accessor);
+        ColumnarChunk cells = chunk(
+                new Object[]{null, "alice", "alice@example.com"},
+                new Object[]{null, "alice", "alice@example.com"});
+
+        assertThat(checker.checkDuplicates(cells, 0, false)).isNull();
+        assertThat(checker.checkDuplicates(cells, 1, true)).isNull();
+    }
+
+    @Test
+    void laterRowWithTheValueOfAnAcceptedRowIsDuplicated() {
+        UniquenessChecker<User> checker = new UniquenessChecker<>(null, User.class, config, accessor);
+        ColumnarChunk cells = chunk(
+                new Object[]{null, "alice", "alice@example.com"},
+                new Object[]{null, "ALICE", "bob@example.com"},
+                new Object[]{null, "bob", "bob@example.com"});
+
+        assertThat(checker.checkDuplicates(cells, 0, true)).isNull();
+        // Usernames compare case-insensitively, like the MySQL collation
+        assertThat(checker.checkDuplicates(cells, 1, true)).isEqualTo("username is duplicated in the file. ");
+        // The duplicated row was not accepted, so its other values stay free
+        assertThat(checker.checkDuplicates(cells, 2, true)).isNull();
+    }
+
+    @Test
+    void checkExistingReportsValuesOfOtherRows() {
+        Tuple found = mock(Tuple.class);
+        when(found.get(0)).thenReturn("Alice");
+        EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        when(entityManager.createQuery(any(CriteriaQuery.class)).getResultList()).thenReturn(List.of(found));
+
+        UniquenessChecker<User> checker = new UniquenessChecker<>(entityManager, User.class, config, accessor);
+        checker.prefetch(chunk(new Object[]{null, "alice", "alice@example.com"}));
+
+        User user = User.builder().username("alice").build();
+        assertThat(checker.checkExisting(user, 1, "alice")).isEqualTo("username already exists. ");
+        assertThat(checker.checkExisting(user, 1, "bob")).isNull();
+    }
+
+    @Test
+    void upsertRowKeepsItsOwnExistingValues() {
+        Tuple found = mock(Tuple.class);
+        when(found.get(0)).thenReturn("alice");
+        when(found.get(1)).thenReturn("U-1");
+        EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        when(entityManager.createQuery(any(CriteriaQuery.class)).getResultList()).thenReturn(List.of(found));
+
+        UniquenessChecker<User> checker = new UniquenessChecker<>(entityManager, User.class, config, accessor, "code");
+        checker.prefetch(chunk(new Object[]{"U-1", "alice", null}));
+
+        User owner = User.builder().code("U-1").username("alice").build();
+        User other = User.builder().code("U-2").username("alice").build();
+        assertThat(checker.checkExisting(owner, 1, "alice")).isNull();
+        assertThat(checker.checkExisting(other, 1, "alice")).isEqualTo("username already exists. ");
+    }
+
+    @Test
+    void stagedUpsertRowIsMatchedOnItsKeyCell() {
+        Tuple found = mock(Tuple.class);
+        when(found.get(0)).thenReturn("alice");
+        when(found.get(1)).thenReturn("U-1");
+        EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        when(entityManager.createQuery(any(CriteriaQuery.class)).getResultList()).thenReturn(List.of(found));
+
+        UniquenessChecker<User> checker = new UniquenessChecker<>(entityManager, User.class, config, accessor, "code");
+        ColumnarChunk cells = chunk(
+                new Object[]{"u-1", "alice", null},
+                new Object[]{"U-2", "alice", null});
+        checker.prefetch(cells);
+
+        assertThat(checker.checkExisting(cells, 0, 1, "alice")).isNull();
+        assertThat(checker.checkExisting(cells, 1, 1, "alice")).isEqualTo("username already exists. ");
+    }
+
+    @Test
+    void upsertKeyMayAppearOncePerFile() {
+        UniquenessChecker<User> checker = new UniquenessChecker<>(null, User.class, config, accessor, "code");
+        ColumnarChunk cells = chunk(
+                new Object[]{"U-1", "alice", null},
+                new Object[]{"u-1", "bob", null});
+
+        assertThat(checker.checkDuplicates(cells, 0, true)).isNull();
+        assertThat(checker.checkDuplicates(cells, 1, true)).isEqualTo("code is duplicated in the file. ");
+    }
+
+    private static ColumnarChunk chunk(Object[]... rows) {
+        ColumnarChunk cells = new ColumnarChunk(rows.length, rows[0].length);
+        for (int i = 0; i < rows.length; i++) {
+            cells.add(i, rows[i]);
+        }
+        return cells;
+    }
+
+    private static SimpleExcelConfig.ColumnMapping column(String field, boolean unique) {
+        return SimpleExcelConfig.ColumnMapping.builder()
+                .field(field)
+                .headerExcel(field)
+                .unique(unique)
+                .type(SimpleExcelConfig.FieldType.STRING)
+                .build();
+    }
+}
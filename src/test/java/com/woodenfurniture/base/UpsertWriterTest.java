@@ -0,0 +1,171 @@
+package com.woodenfurniture.base;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.Generator;
+import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class UpsertWriterTest {
+
+    private final SimpleExcelConfig config = SimpleExcelConfig.builder()
+            .column(List.of(column("code"), column("username")))
+            .build();
+
+    private final EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+    private final AbstractEntityPersister persister = mock(AbstractEntityPersister.class);
+    private final BeforeExecutionGenerator generator = mock(BeforeExecutionGenerator.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final AtomicLong nextId = new AtomicLong(100);
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void mockPersistence() throws Exception {
+        Type text = mock(Type.class);
+        when(text.getReturnedClass()).thenReturn((Class) String.class);
+        when(persister.getGenerator()).thenReturn(generator);
+        when(generator.generate(any(), any(), any(), any())).thenAnswer(invocation -> nextId.getAndIncrement());
+        when(persister.getPropertyNames()).thenReturn(new String[]{"code", "username"});
+        when(persister.getPropertyTypes()).thenReturn(new Type[]{text, text});
+        when(persister.getPropertyInsertability()).thenReturn(new boolean[]{true, true});
+        when(persister.getIdentifierColumnNames()).thenReturn(new String[]{"id"});
+        when(persister.getPropertyColumnNames(0)).thenReturn(new String[]{"code"});
+        when(persister.getPropertyColumnNames(1)).thenReturn(new String[]{"username"});
+        when(persister.getIdentifierTableName()).thenReturn("user");
+        when(persister.getIdentifierType()).thenReturn(mock(Type.class));
+
+        // Hibernate annotations missing from the test classpath are not copied onto the mocks
+        SessionImplementor session = mock(SessionImplementor.class, withSettings().withoutAnnotations());
+        Session hibernateSession = mock(Session.class, withSettings().withoutAnnotations());
+        Connection connection = mock(Connection.class);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(session.unwrap(Session.class)).thenReturn(hibernateSession);
+        doAnswer(invocation -> {
+            ((Work) invocation.getArgument(0)).execute(connection);
+            return null;
+        }).when(hibernateSession).doWork(any());
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+
+    @Test
+    void affectedRowsSeparateUpdatedFromUnchangedRows() throws Exception {
+        existing(existingRow("b", 10L), existingRow("C", 11L), existingRow("d", 12L));
+        // Found rows: 1 per insert, 2 per updated row and 1 per unchanged row
+        when(statement.executeUpdate()).thenReturn(1 + 2 + 1 + 2);
+
+        List<User> chunk = users("A", "B", "c", "D");
+        UpsertWriter.Result result = writer().write(entityManager, chunk, "importer");
+
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(chunk).extracting(User::getId).containsExactly(100L, 10L, 11L, 12L);
+    }
+
+    @Test
+    void unchangedChunkCountsNoUpdates() throws Exception {
+        existing(existingRow("a", 1L), existingRow("b", 2L));
+        when(statement.executeUpdate()).thenReturn(2);
+
+        UpsertWriter.Result result = writer().write(entityManager, users("A", "B"), "importer");
+
+        assertThat(result.getInserted()).isZero();
+        assertThat(result.getUpdated()).isZero();
+        assertThat(result.getUnchanged()).isEqualTo(2);
+    }
+
+    @Test
+    void newRowsDrawTheirIdsFromTheGenerator() throws Exception {
+        existing();
+        when(statement.executeUpdate()).thenReturn(3);
+
+        List<User> chunk = users("A", "B", "C");
+        UpsertWriter.Result result = writer().write(entityManager, chunk, "importer");
+
+        assertThat(result.getInserted()).isEqualTo(3);
+        assertThat(result.getUpdated()).isZero();
+        assertThat(result.getUnchanged()).isZero();
+        assertThat(chunk).extracting(User::getId).containsExactly(100L, 101L, 102L);
+    }
+
+    @Test
+    void emptyChunkWritesNothing() {
+        UpsertWriter.Result result = writer().write(entityManager, new ArrayList<>(), "importer");
+
+        assertThat(result.getInserted() + result.getUpdated() + result.getUnchanged()).isZero();
+    }
+
+    @Test
+    void existingRowsTakeOnlyTheMappedDataFields() {
+        UpsertWriter<User> writer = writer();
+
+        assertThat(writer.updates("username")).isTrue();
+        // The key is written on insert only, unmapped fields keep their stored value
+        assertThat(writer.updates("code")).isFalse();
+        assertThat(writer.updates("email")).isFalse();
+    }
+
+    @Test
+    void idGeneratedOnInsertIsRejected() {
+        when(persister.getGenerator()).thenReturn(mock(Generator.class));
+
+        assertThatThrownBy(this::writer).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private UpsertWriter<User> writer() {
+        return new UpsertWriter<>(User.class, config, persister);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void existing(Tuple... rows) {
+        when(entityManager.createQuery(any(CriteriaQuery.class)).getResultList()).thenReturn(List.of(rows));
+    }
+
+    private static Tuple existingRow(String code, Long id) {
+        Tuple tuple = mock(Tuple.class);
+        when(tuple.get(0)).thenReturn(code);
+        when(tuple.get(1)).thenReturn(id);
+        return tuple;
+    }
+
+    private static List<User> users(String... codes) {
+        List<User> users = new ArrayList<>();
+        for (String code : codes) {
+            users.add(User.builder().code(code).username("user-" + code).build());
+        }
+        return users;
+    }
+
+    private static SimpleExcelConfig.ColumnMapping column(String field) {
+        return SimpleExcelConfig.ColumnMapping.builder()
+                .field(field)
+                .headerExcel(field)
+                .type(SimpleExcelConfig.FieldType.STRING)
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package com.woodenfurniture.base.excel;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarChunkTest {
+
+    @Test
+    void cellsOfAColumnAreContiguous() {
+        ColumnarChunk chunk = new ColumnarChunk(4, 3);
+
+        assertThat(chunk.cell(0, 0)).isZero();
+        assertThat(chunk.cell(3, 0)).isEqualTo(3);
+        assertThat(chunk.cell(0, 1)).isEqualTo(4);
+        assertThat(chunk.cell(2, 2)).isEqualTo(10);
+    }
+
+    @Test
+    void partlyFilledChunkReadsBackByRowAndColumn() {
+        ColumnarChunk chunk = new ColumnarChunk(4, 3);
+        chunk.add(7, new Object[]{"a", 1, null});
+        chunk.add(9, new Object[]{"b", null, true});
+
+        assertThat(chunk.size()).isEqualTo(2);
+        assertThat(chunk.rowIndex(0)).isEqualTo(7);
+        assertThat(chunk.rowIndex(1)).isEqualTo(9);
+        assertThat(new Object[]{chunk.get(0, 0), chunk.get(0, 1), chunk.get(0, 2)}).containsExactly("a", 1, null);
+        assertThat(new Object[]{chunk.get(1, 0), chunk.get(1, 1), chunk.get(1, 2)}).containsExactly("b", null, true);
+        assertThat(chunk.isNull(0, 2)).isTrue();
+        assertThat(chunk.isNull(1, 1)).isTrue();
+        assertThat(chunk.isNull(1, 2)).isFalse();
+    }
+
+    @Test
+    void everyTypeRoundTrips() {
+        Object[] values = {
+                null,
+                Integer.MIN_VALUE,
+                Long.MAX_VALUE,
+                -0.0,
+                Double.NaN,
+                false,
+                true,
+                LocalDate.of(1969, 12, 31),
+                LocalDateTime.of(1960, 2, 29, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6),
+                // Outside of epoch nanoseconds, kept in the dictionary
+                LocalDateTime.of(1500, 1, 1, 0, 0),
+                "text",
+                new BigDecimal("12.50")
+        };
+        ColumnarChunk chunk = new ColumnarChunk(2, values.length);
+        chunk.add(0, values);
+
+        for (int column = 0; column < values.length; column++) {
+            assertThat(chunk.get(0, column)).as("column %d", column).isEqualTo(values[column]);
+            assertThat(chunk.isNull(0, column)).isEqualTo(values[column] == null);
+        }
+        assertThat(chunk.get(0, 3)).isInstanceOf(Double.class);
+        assertThat(Double.doubleToRawLongBits((Double) chunk.get(0, 3))).isEqualTo(Double.doubleToRawLongBits(-0.0));
+        assertThat(chunk.dictionarySize()).isEqualTo(3);
+    }
+
+    @Test
+    void repeatedValuesAreKeptOnce() {
+        ColumnarChunk chunk = new ColumnarChunk(3, 2);
+        chunk.add(0, new Object[]{"chair", "oak"});
+        chunk.add(1, new Object[]{"table", "oak"});
+        chunk.add(2, new Object[]{"chair", "oak"});
+
+        assertThat(chunk.dictionarySize()).isEqualTo(3);
+        assertThat(chunk.get(2, 0)).isEqualTo("chair");
+        assertThat(chunk.get(1, 1)).isEqualTo("oak");
+    }
+
+    @Test
+    void clearResetsRowsAndDictionary() {
+        ColumnarChunk chunk = new ColumnarChunk(2, 1);
+        chunk.add(0, new Object[]{"first"});
+        chunk.add(1, new Object[]{"second"});
+        assertThat(chunk.isFull()).isTrue();
+        assertThatThrownBy(() -> chunk.add(2, new Object[]{"third"})).isInstanceOf(IllegalStateException.class);
+
+        chunk.clear();
+
+        assertThat(chunk.isEmpty()).isTrue();
+        assertThat(chunk.dictionarySize()).isZero();
+        chunk.add(5, new Object[]{"second"});
+        assertThat(chunk.dictionarySize()).isEqualTo(1);
+        assertThat(chunk.get(0, 0)).isEqualTo("second");
+        assertThat(chunk.rowIndex(0)).isEqualTo(5);
+    }
+}
@@ -0,0 +1,147 @@
+package com.woodenfurniture.base.excel;
+
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvSheetWriterTest {
+
+    private final SimpleExcelConfig config = SimpleExcelConfig.builder()
+            .column(List.of(column("name", "Name"), column("price", "Price")))
+            .build();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resultColumnIsWrittenOnEveryRow() throws IOException {
+        Path file = write(false, writer -> {
+            writer.writeHeader(SheetWriter.RESULT_HEADER);
+            writer.writeRow(new Object[]{"Chair", 12.5}, null);
+            writer.writeRow(new Object[]{"Table", null}, "price is required");
+        });
+
+        assertThat(Files.readString(file, StandardCharsets.UTF_8))
+                .isEqualTo("Name,Price,Result\r\nChair,12.5,\r\nTable,,price is required\r\n");
+    }
+
+    @Test
+    void exportHasNoResultColumn() throws IOException {
+        Path file = write(false, writer -> {
+            writer.writeHeader();
+            writer.writeRow(new Object[]{"Chair", 3.0});
+        });
+
+        assertThat(Files.readString(file, StandardCharsets.UTF_8)).isEqualTo("Name,Price\r\nChair,3\r\n");
+    }
+
+    @Test
+    void formulaLikeTextIsEscaped() throws IOException {
+        Path file = write(false, writer -> {
+            writer.writeHeader();
+            writer.writeRow(new Object[]{"=HYPERLINK(\"http://x\")", -4});
+            writer.writeRow(new Object[]{"@SUM(A1)", null});
+            writer.writeRow(new Object[]{"+1", null});
+            writer.writeRow(new Object[]{"-1", null});
+        });
+
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).containsExactly(
+                "Name,Price",
+                "\"'=HYPERLINK(\"\"http://x\"\")\",-4",
+                "'@SUM(A1),",
+                "'+1,",
+                "'-1,");
+    }
+
+    @Test
+    void roundTripsThroughCsvReader() throws IOException {
+        List<Object[]> rows = List.of(
+                new Object[]{"Plain", "1"},
+                new Object[]{"Comma, \"quoted\"\nand a line break", null},
+                new Object[]{"'=already escaped", "'"},
+                new Object[]{"Bàn gỗ sồi", ""});
+
+        for (boolean gzip : new boolean[]{false, true}) {
+            Path file = write(gzip, writer -> {
+                writer.writeHeader(SheetWriter.RESULT_HEADER);
+                for (Object[] row : rows) {
+                    writer.writeRow(row, null);
+                }
+            });
+
+            List<List<Object>> read = new ArrayList<>();
+            CsvReader.read(file, gzip, 0, (rowIndex, cells) -> read.add(new ArrayList<>(cells)));
+
+            assertThat(read).hasSize(rows.size() + 1);
+            assertThat(read.get(0)).containsExactly("Name", "Price", "Result");
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] expected = Arrays.copyOf(rows.get(i), 3);
+                if ("".equals(expected[1])) {
+                    // An empty field is read as null
+                    expected[1] = null;
+                }
+                assertThat(read.get(i + 1)).as("row %d, gzip %s", i, gzip).containsExactly(expected);
+            }
+        }
+    }
+
+    @Test
+    void formulaEscapeIsKeptOnRead() throws IOException {
+        Path file = write(false, writer -> {
+            writer.writeHeader();
+            writer.writeRow(new Object[]{"=1+2", "-3"});
+        });
+
+        List<List<Object>> read = new ArrayList<>();
+        CsvReader.read(file, false, 0, (rowIndex, cells) -> read.add(new ArrayList<>(cells)));
+
+        assertThat(read.get(1)).containsExactly("'=1+2", "'-3");
+    }
+
+    @Test
+    void uploadedApostrophesAreReadAsTheyAre() throws IOException {
+        Path file = Files.createTempFile(tempDir, "upload-", ".csv");
+        Files.writeString(file, "Phone,Balance\r\n'+84 912 345 678,'-5\r\n\"''=x\",'\r\n", StandardCharsets.UTF_8);
+
+        List<List<Object>> read = new ArrayList<>();
+        CsvReader.read(file, false, 0, (rowIndex, cells) -> read.add(new ArrayList<>(cells)));
+
+        assertThat(read).hasSize(3);
+        assertThat(read.get(1)).containsExactly("'+84 912 345 678", "'-5");
+        assertThat(read.get(2)).containsExactly("''=x", "'");
+    }
+
+    private Path write(boolean gzip, WriterAction action) throws IOException {
+        Path file = Files.createTempFile(tempDir, "sheet-", gzip ? ".csv.gz" : ".csv");
+        try (OutputStream outputStream = Files.newOutputStream(file);
+             CsvSheetWriter writer = new CsvSheetWriter(config, outputStream, gzip)) {
+            action.write(writer);
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static SimpleExcelConfig.ColumnMapping column(String field, String header) {
+        return SimpleExcelConfig.ColumnMapping.builder()
+                .field(field)
+                .headerExcel(header)
+                .type(SimpleExcelConfig.FieldType.STRING)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface WriterAction {
+        void write(SheetWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,81 @@
+package com.woodenfurniture.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.woodenfurniture.base.BaseService;
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.config.excel.SimpleExcelConfigReader;
+import com.woodenfurniture.exception.AppException;
+import com.woodenfurniture.exception.ErrorCode;
+import com.woodenfurniture.permission.Permission;
+import com.woodenfurniture.role.Role;
+import com.woodenfurniture.user.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WorkbookExportServiceTest {
+
+    private final BaseService<?, ?, ?, ?> users = service(User.class, SimpleExcelConfig.builder().name("Users").build());
+    private final BaseService<?, ?, ?, ?> roles = service(Role.class, null);
+    private final BaseService<?, ?, ?, ?> permissions = service(Permission.class, null);
+    private final WorkbookExportService exportService = new WorkbookExportService(List.of(users, roles, permissions), 3);
+
+    @Test
+    void defaultExportSkipsEntitiesWithoutConfiguration() {
+        assertThat(exportService.resolve(null)).containsExactly(users);
+        assertThat(exportService.resolve(List.of())).containsExactly(users);
+    }
+
+    @Test
+    void namedEntityWithoutConfigurationIsRejectedUpFront() {
+        assertThatThrownBy(() -> exportService.resolve(List.of("user", "Role")))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.EXPORT_CONFIG_NOT_EXISTED);
+    }
+
+    @Test
+    void unknownEntityIsRejected() {
+        assertThatThrownBy(() -> exportService.resolve(List.of("furniture")))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.EXPORT_ENTITY_NOT_EXISTED);
+    }
+
+    @Test
+    void namedEntitiesKeepTheirOrder() {
+        WorkbookExportService allConfigured = new WorkbookExportService(List.of(users,
+                service(Role.class, SimpleExcelConfig.builder().name("Roles").build())), 3);
+
+        assertThat(allConfigured.resolve(List.of(" ROLE ", "user")))
+                .extracting(service -> service.getEntityClass().getSimpleName())
+                .containsExactly("Role", "User");
+    }
+
+    @Test
+    void shippedUserExportConfigurationResolves() {
+        SimpleExcelConfig config = new SimpleExcelConfigReader(new ObjectMapper(), "")
+                .readConfig("config/excel/user-export-config.json");
+
+        assertThat(config.getName()).isEqualTo("Users");
+        assertThat(config.getColumn()).extracting(SimpleExcelConfig.ColumnMapping::getField)
+                .contains("username", "email", "roles");
+    }
+
+    private static BaseService<?, ?, ?, ?> service(Class<?> entityClass, SimpleExcelConfig exportConfig) {
+        BaseService<?, ?, ?, ?> service = mock(BaseService.class);
+        doReturn(entityClass).when(service).getEntityClass();
+        if (exportConfig != null) {
+            when(service.getExportConfig()).thenReturn(exportConfig);
+        } else {
+            when(service.getExportConfig()).thenThrow(new RuntimeException("Failed to read Excel configuration"));
+        }
+        return service;
+    }
+}
@@ -0,0 +1,196 @@
+package com.woodenfurniture.importjob;
+
+import com.woodenfurniture.base.ImportLimits;
+import com.woodenfurniture.base.ImportMode;
+import com.woodenfurniture.base.excel.FileFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImportJobServiceTest {
+
+    @TempDir
+    Path jobDir;
+
+    private final ImportJobRepository repository = mock(ImportJobRepository.class);
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final List<long[]> progressWrites = new CopyOnWriteArrayList<>();
+    private final List<String> progressThreads = new CopyOnWriteArrayList<>();
+    private ImportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any())).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            jobs.put(job.getUuid(), job);
+            return job;
+        });
+        when(repository.findByUuid(anyString())).thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.<String>getArgument(0))));
+        when(repository.updateProgress(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> {
+                    progressThreads.add(Thread.currentThread().getName());
+                    progressWrites.add(new long[]{invocation.getArgument(1), invocation.getArgument(3)});
+                    return 1;
+                });
+        service = new ImportJobService(repository, new ImportLimits(1 << 20, 1000, ""),
+                mock(PlatformTransactionManager.class), jobDir.toString(), 1, 10,
+                "node-a", Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void checkpointsOfBothThreadsAreWrittenByOneThread() throws Exception {
+        ImportJobResponse response = service.submit("User", upload(), ImportMode.INSERT, FileFormat.CSV,
+                (source, progress, outputStream) -> {
+                    Thread reader = new Thread(() -> {
+                        for (int i = 0; i < 20_000; i++) {
+                            progress.rowRead();
+                        }
+                    });
+                    reader.start();
+                    for (int i = 0; i < 1_000; i++) {
+                        progress.rowsSaved(1);
+                    }
+                    reader.join();
+                });
+
+        ImportJob job = awaitFinished(response.getId());
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(progressThreads).isNotEmpty().containsOnly("import-job-maintenance");
+        assertThat(progressWrites.get(progressWrites.size() - 1)).containsExactly(20_000, 1_000);
+        // Submitted, running and completed: the only versioned saves of the job
+        verify(repository, times(3)).save(any());
+    }
+
+    @Test
+    void restartFailsOnlyTheUnfinishedJobsOfThisInstance() {
+        ImportJob own = job("own", "node-a", LocalDateTime.now().minusSeconds(10));
+        when(repository.findByOwnerAndStatusIn(eq("node-a"), any())).thenReturn(List.of(own));
+        when(repository.failExpired(eq("own"), any(), any(), eq(ImportJob.Status.FAILED), anyString(), any())).thenReturn(1);
+
+        service.failInterruptedJobs();
+
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).failExpired(eq("own"), any(), before.capture(), eq(ImportJob.Status.FAILED), anyString(), any());
+        // Only while nobody renewed the lease since it was read
+        assertThat(before.getValue()).isAfter(own.getHeartbeatAt()).isBefore(own.getHeartbeatAt().plusSeconds(1));
+        verify(repository, never()).findExpired(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void maintenanceRenewsOwnLeasesAndFailsOnlyExpiredForeignJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ImportJobResponse response = service.submit("User", upload(), ImportMode.INSERT, FileFormat.CSV,
+                (source, progress, outputStream) -> release.await());
+        String ownId = response.getId();
+
+        ImportJob abandoned = job("abandoned", "node-b", LocalDateTime.now().minusMinutes(10));
+        ImportJob renewed = job("renewed", "node-c", LocalDateTime.now().minusMinutes(6));
+        Files.writeString(jobDir.resolve("abandoned.upload"), "x");
+        Files.writeString(jobDir.resolve("renewed.upload"), "x");
+        when(repository.findExpired(any(), any())).thenReturn(List.of(abandoned, renewed, jobs.get(ownId)));
+        when(repository.failExpired(eq("abandoned"), any(), any(), any(), anyString(), any())).thenReturn(1);
+        // Renewed by its owner between the query and the update
+        when(repository.failExpired(eq("renewed"), any(), any(), any(), anyString(), any())).thenReturn(0);
+
+        try {
+            service.maintain();
+        } finally {
+            release.countDown();
+        }
+
+        ArgumentCaptor<Collection<String>> leased = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).renewLease(leased.capture(), any());
+        assertThat(leased.getValue()).containsExactly(ownId);
+        ArgumentCaptor<LocalDateTime> expiredBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).findExpired(any(), expiredBefore.capture());
+        assertThat(expiredBefore.getValue()).isBefore(LocalDateTime.now().minusMinutes(4));
+        verify(repository, never()).failExpired(eq(ownId), any(), any(), any(), anyString(), any());
+        assertThat(jobDir.resolve("abandoned.upload")).doesNotExist();
+        assertThat(jobDir.resolve("renewed.upload")).exists();
+        assertThat(awaitFinished(ownId).getOwner()).isEqualTo("node-a");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retentionSweepDeletesExpiredJobsWithTheirResults() throws Exception {
+        Path result = Files.writeString(jobDir.resolve("expired-result.csv"), "x");
+        Path orphan = Files.writeString(jobDir.resolve("orphan-result.csv"), "x");
+        Path recent = Files.writeString(jobDir.resolve("recent-result.csv"), "x");
+        Files.setLastModifiedTime(orphan, FileTime.from(Instant.now().minus(Duration.ofDays(8))));
+        ImportJob expired = job("expired", "node-b", null);
+        expired.setResultPath(result.toString());
+        when(repository.findByStatusInAndFinishedAtBefore(any(), any())).thenReturn(List.of(expired));
+
+        service.deleteExpiredJobs();
+
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).findByStatusInAndFinishedAtBefore(any(), before.capture());
+        assertThat(before.getValue()).isBefore(LocalDateTime.now().minusDays(6));
+        ArgumentCaptor<Iterable<ImportJob>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(repository).deleteAllInBatch(deleted.capture());
+        assertThat(deleted.getValue()).containsExactly(expired);
+        assertThat(result).doesNotExist();
+        assertThat(orphan).doesNotExist();
+        assertThat(recent).exists();
+    }
+
+    private static ImportJob job(String uuid, String owner, LocalDateTime heartbeatAt) {
+        return ImportJob.builder()
+                .uuid(uuid)
+                .owner(owner)
+                .heartbeatAt(heartbeatAt)
+                .status(ImportJob.Status.RUNNING)
+                .build();
+    }
+
+    private ImportJob awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ImportJob job = jobs.get(jobId);
+            if (job.getStatus() == ImportJob.Status.COMPLETED || job.getStatus() == ImportJob.Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Import job " + jobId + " did not finish");
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("file", "users.csv", "text/csv", "name\nAn\n".getBytes());
+    }
+}
@@ -0,0 +1,61 @@
+package com.woodenfurniture.user;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingPoolTest {
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final PasswordHashingPool pool = new PasswordHashingPool(passwordEncoder, 2, 1);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void encodesInOrderAndKeepsNulls() {
+        List<String> encoded = pool.encodeAll(Arrays.asList("first", null, "third", "fourth"));
+
+        assertThat(encoded).hasSize(4);
+        assertThat(passwordEncoder.matches("first", encoded.get(0))).isTrue();
+        assertThat(encoded.get(1)).isNull();
+        assertThat(passwordEncoder.matches("third", encoded.get(2))).isTrue();
+        assertThat(passwordEncoder.matches("fourth", encoded.get(3))).isTrue();
+    }
+
+    @Test
+    void matchingCurrentHashIsKept() {
+        String current = passwordEncoder.encode("unchanged");
+        String stale = passwordEncoder.encode("old password");
+
+        List<String> encoded = pool.encodeAll(
+                List.of("unchanged", "new password", "fresh"),
+                Arrays.asList(current, stale, null));
+
+        assertThat(encoded.get(0)).isEqualTo(current);
+        assertThat(encoded.get(1)).isNotEqualTo(stale);
+        assertThat(passwordEncoder.matches("new password", encoded.get(1))).isTrue();
+        assertThat(passwordEncoder.matches("fresh", encoded.get(2))).isTrue();
+    }
+
+    @Test
+    void shutDownPoolRejectsInsteadOfHanging() throws Exception {
+        pool.shutdown();
+
+        CompletableFuture<List<String>> hashing = CompletableFuture.supplyAsync(() -> pool.encodeAll(List.of("a", "b")));
+
+        assertThatThrownBy(() -> hashing.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
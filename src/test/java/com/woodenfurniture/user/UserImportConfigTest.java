@@ -0,0 +1,60 @@
+package com.woodenfurniture.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.woodenfurniture.base.ExcelServiceImpl;
+import com.woodenfurniture.base.ImportLimits;
+import com.woodenfurniture.config.excel.SimpleExcelConfig;
+import com.woodenfurniture.config.excel.SimpleExcelConfigReader;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserImportConfigTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleExcelConfigReader configReader = new SimpleExcelConfigReader(new ObjectMapper(), "");
+    private final UserServiceImpl userService = new UserServiceImpl(null, null, null, null, null, null, configReader);
+
+    @Test
+    void importConfigOfTheServiceIsStreaming() {
+        SimpleExcelConfig config = configReader.readConfig(userService.getImportConfigPath());
+
+        assertThat(config.isStreaming()).isTrue();
+        assertThat(config.getColumn()).extracting(SimpleExcelConfig.ColumnMapping::getField)
+                .contains("username", "password", "email");
+    }
+
+    @Test
+    void streamingImportReadsTheRowsBelowTheHeader() throws Exception {
+        SimpleExcelConfig config = configReader.readConfig(userService.getImportConfigPath());
+        Path file = tempDir.resolve("users.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream outputStream = Files.newOutputStream(file)) {
+            XSSFSheet sheet = workbook.createSheet("Users");
+            sheet.createRow(0).createCell(0).setCellValue("Users");
+            sheet.createRow(1).createCell(0).setCellValue("Username");
+            sheet.getRow(1).createCell(1).setCellValue("Email");
+            sheet.createRow(2).createCell(0).setCellValue("alice");
+            sheet.getRow(2).createCell(1).setCellValue("alice@example.com");
+            sheet.createRow(3).createCell(0).setCellValue("bob");
+            workbook.write(outputStream);
+        }
+
+        List<User> users = new ArrayList<>();
+        new ExcelServiceImpl(configReader, new ImportLimits(0, 0, tempDir.toString()))
+                .importFromExcel(file, config, User.class, (user, rowIndex) -> users.add(user));
+
+        assertThat(users).extracting(User::getUsername).containsExactly("alice", "bob");
+        assertThat(users).extracting(User::getEmail).containsExactly("alice@example.com", null);
+    }
+}